@@ -0,0 +1,63 @@
+package fr.uge.patchwork2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the terminal display of a grid : a whole quilt board and a patch.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplaysBenchmark {
+  private boolean[][] board;
+  private Patch patch;
+
+  /**
+   * Plays the first moves of a seeded game and keeps the quilt board of the first player
+   */
+  @Setup
+  public void setup() {
+    var random = new Random(0);
+    var game = new Game(1, random);
+    var bot = new RandomBot(random);
+    for (var i = 0; i < 20 && !game.isOver(); i++)
+      game.apply(bot.decide(game));
+    board = game.player1().quiltboard().getBoard();
+    patch = game.patchcircle().get(0);
+  }
+
+  /**
+   * Displays the quilt board
+   * @return the display
+   */
+  @Benchmark
+  public String quiltBoard() {
+    return Displays.displayGrid(board, QuiltBoard.getSIZE(), QuiltBoard.getSIZE());
+  }
+
+  /**
+   * Displays a patch
+   * @return the display
+   */
+  @Benchmark
+  public String patch() {
+    return Displays.displayGrid(patch.form(), patch.sizeX(), patch.sizeY());
+  }
+}
@@ -0,0 +1,56 @@
+package fr.uge.patchwork2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of a whole game played by two random bots, from the creation of the game to its end.
+ *
+ * The games cycle over 64 seeds, so that every run plays the same games.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+  /**
+   * Number of seeds, a power of two
+   */
+  private static final int SEEDS = 64;
+
+  /**
+   * Type of the game (basic = 0 or full = 1)
+   */
+  @Param({"0", "1"})
+  public int type;
+  private int seed;
+
+  /**
+   * Plays a random game until its end
+   * @return the score of the first player minus the one of the second player
+   */
+  @Benchmark
+  public int randomGame() {
+    var random = new Random(seed++ & (SEEDS - 1));
+    var game = new Game(type, random);
+    var bot = new RandomBot(random);
+    while (!game.isOver())
+      game.apply(bot.decide(game));
+    return game.player1().score() - game.player2().score();
+  }
+}
@@ -0,0 +1,65 @@
+package fr.uge.patchwork2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the transformations of a patch, cycling over every orientation of every patch of the full game.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PatchBenchmark {
+  private Patch[] orientations;
+  private int index;
+
+  /**
+   * Collects the orientations of the patches of a seeded full patch circle
+   */
+  @Setup
+  public void setup() {
+    var circle = PatchCircle.newPatchCircleFull(new Random(0));
+    orientations = circle.getPatch().stream()
+                         .flatMap(patch -> IntStream.range(0, patch.orientationCount()).mapToObj(patch::orientation))
+                         .toArray(Patch[]::new);
+  }
+
+  /**
+   * Flips the next orientation
+   * @return the flipped patch
+   */
+  @Benchmark
+  public Patch flip() {
+    var patch = orientations[index];
+    index = index + 1 == orientations.length ? 0 : index + 1;
+    return patch.flip(index & 1);
+  }
+
+  /**
+   * Mirrors the next orientation
+   * @return the mirrored patch
+   */
+  @Benchmark
+  public Patch mirror() {
+    var patch = orientations[index];
+    index = index + 1 == orientations.length ? 0 : index + 1;
+    return patch.mirror(index & 1);
+  }
+}
@@ -0,0 +1,66 @@
+package fr.uge.patchwork2;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the patch circle of a seeded full game.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PatchCircleBenchmark {
+  private PatchCircle circle;
+  private long remaining;
+  private int cursor;
+  private int trios;
+  private int index;
+
+  /**
+   * Creates the patch circle
+   */
+  @Setup
+  public void setup() {
+    circle = PatchCircle.newPatchCircleFull(new Random(0));
+    remaining = circle.remaining();
+    cursor = circle.cursor();
+    trios = (circle.size() + 2) / 3;
+  }
+
+  /**
+   * Chooses one of the first three patches, then restores the circle so that it stays the same
+   * @return the chosen patch
+   */
+  @Benchmark
+  public Patch choosePatch() {
+    var patch = circle.choosePatch(index++ % 3);
+    circle.restore(remaining, cursor);
+    return patch;
+  }
+
+  /**
+   * Builds the list of one of the trios of the circle
+   * @return the trio
+   */
+  @Benchmark
+  public List<Patch> getTrio() {
+    return circle.getTrio(index++ % trios + 1);
+  }
+}
@@ -0,0 +1,120 @@
+package fr.uge.patchwork2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the quilt board : placement checks, placement (undone in the same operation) and counters.
+ *
+ * The quilt board is the one of the first player after 20 random moves of a seeded full game,
+ * the probes are fixed in the setup so that every run measures the same operations.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuiltBoardBenchmark {
+  /**
+   * Number of probes, a power of two
+   */
+  private static final int PROBES = 256;
+
+  private QuiltBoard quiltboard;
+  private final Patch[] patches = new Patch[PROBES];
+  private final int[] xs = new int[PROBES];
+  private final int[] ys = new int[PROBES];
+  /**
+   * Legal placements (patch, x, y) of the probes, for placePatch
+   */
+  private final Patch[] legalPatches = new Patch[PROBES];
+  private final int[] legalXs = new int[PROBES];
+  private final int[] legalYs = new int[PROBES];
+  private int index;
+
+  /**
+   * Plays the first moves of a seeded game and draws the probes
+   */
+  @Setup
+  public void setup() {
+    var random = new Random(0);
+    var game = new Game(1, random);
+    var bot = new RandomBot(random);
+    for (var i = 0; i < 20 && !game.isOver(); i++)
+      game.apply(bot.decide(game));
+    quiltboard = game.player1().quiltboard();
+    var circle = game.patchcircle();
+    var legal = 0;
+    for (var i = 0; i < PROBES; i++) {
+      var patch = circle.get(random.nextInt(circle.size()));
+      patches[i] = patch.orientation(random.nextInt(patch.orientationCount()));
+      xs[i] = random.nextInt(QuiltBoard.getSIZE());
+      ys[i] = random.nextInt(QuiltBoard.getSIZE());
+    }
+    while (legal < PROBES) {
+      var patch = circle.get(random.nextInt(circle.size()));
+      patch = patch.orientation(random.nextInt(patch.orientationCount()));
+      var x = random.nextInt(QuiltBoard.getSIZE());
+      var y = random.nextInt(QuiltBoard.getSIZE());
+      if (quiltboard.canPlacePatch(patch, x, y)) {
+        legalPatches[legal] = patch;
+        legalXs[legal] = x;
+        legalYs[legal] = y;
+        legal++;
+      }
+    }
+  }
+
+  /**
+   * Checks one placement among the probes (legal or not)
+   * @return the result of the check
+   */
+  @Benchmark
+  public boolean canPlacePatch() {
+    var i = index++ & (PROBES - 1);
+    return quiltboard.canPlacePatch(patches[i], xs[i], ys[i]);
+  }
+
+  /**
+   * Places a patch then removes it, so that the quilt board stays the same
+   * @return the removed placement
+   */
+  @Benchmark
+  public PatchPlaced placePatch() {
+    var i = index++ & (PROBES - 1);
+    quiltboard.placePatch(legalPatches[i], legalXs[i], legalYs[i]);
+    return quiltboard.removeLastPatch();
+  }
+
+  /**
+   * Reads the number of empty squares
+   * @return the number of empty squares
+   */
+  @Benchmark
+  public int emptySquare() {
+    return quiltboard.emptySquare();
+  }
+
+  /**
+   * Checks if the quilt board has a full 7x7 square
+   * @return the result of the check
+   */
+  @Benchmark
+  public boolean hasSevenBySevenSquare() {
+    return quiltboard.hasSevenBySevenSquare();
+  }
+}
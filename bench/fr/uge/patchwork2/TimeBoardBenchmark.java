@@ -0,0 +1,98 @@
+package fr.uge.patchwork2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the time board, on moves of 1 to 6 squares from every square.
+ *
+ * elementCrossed removes the special patches it crosses, so it is measured on the time board of the basic mode
+ * (without special patches) : the time board stays the same between two operations.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeBoardBenchmark {
+  /**
+   * Last index of the time board
+   */
+  private static final int LAST = TimeBoard.getSIZE() - 1;
+
+  private TimeBoard basic;
+  private TimeBoard full;
+  private int index;
+
+  /**
+   * Creates the time boards
+   */
+  @Setup
+  public void setup() {
+    basic = TimeBoard.newBasicTimeBoard();
+    full = TimeBoard.newFullTimeBoard();
+  }
+
+  /**
+   * Returns the start of the next move
+   * @return the index of the start square
+   */
+  private int start() {
+    index = index == 6 * LAST - 1 ? 0 : index + 1;
+    return index / 6;
+  }
+
+  /**
+   * Returns the end of the current move
+   * @param start index of the start square
+   * @return the index of the end square
+   */
+  private int finish(int start) {
+    return Math.min(start + 1 + index % 6, LAST);
+  }
+
+  /**
+   * Lists the elements crossed by a move
+   * @return the crossed elements
+   */
+  @Benchmark
+  public List<TimeBoardElement> elementCrossed() {
+    var start = start();
+    return basic.elementCrossed(start, finish(start));
+  }
+
+  /**
+   * Counts the buttons and the special patches crossed by a move, as the game does
+   * @return the number of buttons plus the number of special patches
+   */
+  @Benchmark
+  public int crossed() {
+    var start = start();
+    var finish = finish(start);
+    return full.buttonsCrossed(start, finish) + full.specialPatchesCrossed(start, finish);
+  }
+
+  /**
+   * Computes the coordinates of a square on the drawing of the time board
+   * @return the packed coordinates
+   */
+  @Benchmark
+  public int path() {
+    var square = start();
+    return TimeBoard.pathX(square) << 8 | TimeBoard.pathY(square);
+  }
+}
@@ -0,0 +1,272 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Bot choosing its moves with a depth-limited alpha-beta search (negamax) with iterative deepening.
+ *
+ * Patchwork has no hidden information nor chance once the patch circle is shuffled, but a player can play
+ * several times in a row : the value of a child is only negated when the player to move changes.
+ * The moves searched are the candidates of PlayoutPolicy (at most four), ordered with the best move stored
+ * in the transposition table first, then by their immediate value.
+ * A finished game is worth the difference of the scores (Player.score), a position at the depth limit
+ * the difference of the values of the players given by the evaluator.
+ * The values of the subtrees that never reached the depth limit are exact : they are stored with the depth MAX_DEPTH,
+ * and the deepening stops as soon as the value of the root is exact.
+ * A bot keeps buffers between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class AlphaBetaBot implements Decider {
+  /**
+   * Number of nodes between two checks of the clock (a power of two)
+   */
+  private static final int CLOCK_INTERVAL = 1024;
+  /**
+   * Value greater than the value of any position
+   */
+  private static final int INFINITY = 1_000_000;
+
+  private final TranspositionTable table;
+  private final Evaluator evaluator;
+  private final PlayoutPolicy policy;
+  private final int maxDepth;
+  private final long duration;
+  /**
+   * Candidates and their ordering values, one buffer per ply
+   */
+  private final int[][] moves;
+  private final int[][] orders;
+  private long deadline;
+  private boolean aborted;
+  /**
+   * true if a position at the depth limit (or a stored value that is not exact) was used since the flag was reset
+   */
+  private boolean horizon;
+  private int rootMove;
+  private long nodes;
+  private long lastNodes;
+  private long lastNanos;
+  private int lastDepth;
+  private int lastValue;
+  private boolean lastExact;
+
+  /**
+   * Constructor for AlphaBetaBot, the positions at the depth limit are evaluated as GreedyBot does
+   * @param table transposition table of the search, it can be shared with other searches
+   * @param maxDepth maximum depth of the search in moves (lower than TranspositionTable.MAX_DEPTH)
+   * @param millis maximum duration of the search per move in milliseconds (0 for no limit)
+   */
+  public AlphaBetaBot(TranspositionTable table, int maxDepth, long millis) {
+    this(table, maxDepth, millis, Evaluator.GREEDY);
+  }
+
+  /**
+   * Constructor for AlphaBetaBot with a given evaluation of the positions at the depth limit
+   * @param table transposition table of the search, it can be shared with other searches
+   * @param maxDepth maximum depth of the search in moves (lower than TranspositionTable.MAX_DEPTH)
+   * @param millis maximum duration of the search per move in milliseconds (0 for no limit)
+   * @param evaluator evaluation of the players
+   */
+  public AlphaBetaBot(TranspositionTable table, int maxDepth, long millis, Evaluator evaluator) {
+    this.table = Objects.requireNonNull(table);
+    this.evaluator = Objects.requireNonNull(evaluator);
+    if (maxDepth <= 0 || maxDepth >= TranspositionTable.MAX_DEPTH)
+      throw new IllegalArgumentException("maxDepth must be between 1 and " + (TranspositionTable.MAX_DEPTH - 1));
+    if (millis < 0)
+      throw new IllegalArgumentException("budget cannot be negative");
+    policy = new PlayoutPolicy(new Random()); /* only the candidates are used, they do not depend on the generator */
+    this.maxDepth = maxDepth;
+    this.duration = millis == 0 ? Long.MAX_VALUE : millis * 1_000_000;
+    moves = new int[maxDepth][PlayoutPolicy.MAX_CANDIDATES];
+    orders = new int[maxDepth][PlayoutPolicy.MAX_CANDIDATES];
+  }
+
+  /**
+   * Returns the number of nodes searched by the last decision
+   * @return the number of nodes
+   */
+  public long lastNodes() {
+    return lastNodes;
+  }
+
+  /**
+   * Returns the number of nodes searched per second by the last decision
+   * @return the number of nodes per second
+   */
+  public double nodesPerSecond() {
+    return lastNanos == 0 ? 0 : lastNodes * 1e9 / lastNanos;
+  }
+
+  /**
+   * Returns the depth of the last iteration completed by the last decision
+   * @return the depth
+   */
+  public int lastDepth() {
+    return lastDepth;
+  }
+
+  /**
+   * Returns the value of the root found by the last iteration completed by the last decision
+   * @return the value for the player who had to move
+   */
+  public int lastValue() {
+    return lastValue;
+  }
+
+  /**
+   * Generates a string describing the last decision
+   * @return the corresponding string
+   */
+  public String report() {
+    return String.format("Alpha-beta : depth %d%s, value %d, %d nodes in %.0f ms (%.0f nodes/s)",
+                         lastDepth, lastExact ? " (exact)" : "", lastValue, lastNodes, lastNanos / 1e6, nodesPerSecond());
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    if (game.isOver())
+      throw new IllegalStateException("No legal move, the game is over");
+    var start = System.nanoTime();
+    deadline = duration == Long.MAX_VALUE ? Long.MAX_VALUE : start + duration;
+    aborted = false;
+    nodes = 0;
+    lastDepth = 0;
+    lastExact = false;
+    policy.candidates(game, moves[0]);
+    var best = moves[0][0];
+    var player = game.currentPlayer().id();
+    for (var depth = 1; depth <= maxDepth; depth++) {
+      horizon = false;
+      var value = search(game, depth, 0, -INFINITY, INFINITY, player);
+      if (aborted)
+        break;
+      best = rootMove;
+      lastDepth = depth;
+      lastValue = value;
+      if (!horizon) {
+        lastExact = true;
+        break;
+      }
+    }
+    lastNodes = nodes;
+    lastNanos = System.nanoTime() - start;
+    return best;
+  }
+
+  /**
+   * Searches a position
+   * @param game the game in the position, left in the same position
+   * @param depth remaining depth
+   * @param ply distance to the root
+   * @param alpha lower bound of the window
+   * @param beta upper bound of the window
+   * @param player id of the player to move (of the last player who moved if the game is over)
+   * @return the value of the position for the player, or a bound if it is outside the window
+   */
+  private int search(Game game, int depth, int ply, int alpha, int beta, int player) {
+    if ((++nodes & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadline)
+      aborted = true;
+    if (aborted)
+      return 0;
+    if (game.isOver())
+      return difference(game, player, true);
+    if (depth == 0) {
+      horizon = true;
+      return difference(game, player, false);
+    }
+    var hash = game.hash();
+    var entry = table.probe(hash);
+    var tableMove = -1;
+    if (entry != 0) {
+      tableMove = TranspositionTable.move(entry);
+      if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+        var value = TranspositionTable.value(entry);
+        var bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT
+            || (bound == TranspositionTable.LOWER && value >= beta)
+            || (bound == TranspositionTable.UPPER && value <= alpha)) {
+          if (TranspositionTable.depth(entry) != TranspositionTable.MAX_DEPTH)
+            horizon = true;
+          return value;
+        }
+      }
+    }
+    var candidates = moves[ply];
+    var count = order(game, candidates, orders[ply], tableMove);
+    var outerHorizon = horizon;
+    horizon = false;
+    var originalAlpha = alpha;
+    var bestValue = -INFINITY;
+    var bestMove = candidates[0];
+    for (var i = 0; i < count; i++) {
+      var move = candidates[i];
+      game.apply(move);
+      var next = game.isOver() ? player : game.currentPlayer().id();
+      var value = next == player ? search(game, depth - 1, ply + 1, alpha, beta, player)
+                                 : -search(game, depth - 1, ply + 1, -beta, -alpha, next);
+      game.undo();
+      if (aborted)
+        return 0;
+      if (value > bestValue) {
+        bestValue = value;
+        bestMove = move;
+      }
+      if (value > alpha)
+        alpha = value;
+      if (alpha >= beta)
+        break;
+    }
+    if (ply == 0)
+      rootMove = bestMove;
+    var bound = bestValue <= originalAlpha ? TranspositionTable.UPPER
+              : bestValue >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    table.store(hash, horizon ? depth : TranspositionTable.MAX_DEPTH, bestValue, bound, bestMove);
+    horizon |= outerHorizon;
+    return bestValue;
+  }
+
+  /**
+   * Fills the buffer with the candidates of the position, the move of the transposition table first,
+   * then by decreasing immediate value
+   * @param game the game
+   * @param candidates buffer of the candidates
+   * @param values buffer of the ordering values
+   * @param tableMove move of the transposition table (-1 if none)
+   * @return the number of candidates
+   */
+  private int order(Game game, int[] candidates, int[] values, int tableMove) {
+    var count = policy.candidates(game, candidates);
+    var player = game.currentPlayer();
+    for (var i = 0; i < count; i++) {
+      var move = candidates[i];
+      var value = move == tableMove ? Integer.MAX_VALUE
+                : Move.kind(move) == Move.SPECIAL ? 0 : PlayoutPolicy.immediateValue(game, player, move);
+      var j = i;
+      for (; j > 0 && values[j - 1] < value; j--) { /* insertion sort, there are at most four candidates */
+        values[j] = values[j - 1];
+        candidates[j] = candidates[j - 1];
+      }
+      values[j] = value;
+      candidates[j] = move;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the difference between the value of a player and the value of his opponent
+   * @param game the game
+   * @param player id of the player
+   * @param over true if the game is over (the values are the scores)
+   * @return the difference
+   */
+  private int difference(Game game, int player, boolean over) {
+    var self = player == 1 ? game.player1() : game.player2();
+    var opponent = player == 1 ? game.player2() : game.player1();
+    if (over)
+      return self.score() - opponent.score();
+    return evaluator.difference(game, self);
+  }
+}
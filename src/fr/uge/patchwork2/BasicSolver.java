@@ -0,0 +1,731 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Exact solver of the basic mode : perfect-play score margin and move of a position, by an alpha-beta search
+ * with memoization (null window searches, MTD(f)).
+ *
+ * In the basic mode every patch is a 2x2 square, so a quilt board of 9x9 squares holds at most 16 patches,
+ * as many as the 16 aligned blocks (squares whose coordinates start on even numbers) of its top left 8x8 area,
+ * and a 7x7 square can only be filled with 16 patches as well (each patch covers at most one of the
+ * 16 squares whose coordinates are even in that 7x7 square). The solver therefore only places patches on the
+ * first free aligned block : the moves of a position are skip and the purchase of one of the three patches.
+ * This is exact when the patches already on the quilt boards are on aligned blocks, as the ones placed by the solver ;
+ * when a player has placed other patches, the rest of the game is solved with aligned placements only
+ * and the margin found is only the one of the best line over these placements (see isExact).
+ *
+ * The search does not use Game : the position is copied into a few ints and longs (the patch circle becomes
+ * the sequence of the kinds of its patches from the neutral token, two patches of the same kind being interchangeable)
+ * and the moves follow the rules of Game on them. A position is memorized under a key of two longs : the sequence of kinds
+ * (cut after the patches that can still be bought), the turn order, the owner of the special tile and, for each player,
+ * his location, his income, his full aligned blocks and his buttons bounded by the most he can still spend.
+ * The memorized bounds are the ones of the margin the player to move will gain until the end of the game,
+ * which does not depend on the buttons beyond that bound.
+ * The memory has a fixed size : an entry replaces the one of its bucket whose search was the smallest.
+ * The squares that are not part of a full aligned block never change during a search : the memory is cleared
+ * when they differ from the ones of the previous search.
+ *
+ * A solve can be given a maximum number of states : the solver then gives up and, as a Decider, asks a fallback bot.
+ * A solver keeps its memory between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class BasicSolver implements Decider {
+  /**
+   * Number of aligned 2x2 blocks of a quilt board
+   */
+  private static final int BLOCKS = 16;
+  /**
+   * Last index of the time board
+   */
+  private static final int LAST = TimeBoard.getSIZE() - 1;
+  /**
+   * Bound greater than any gain
+   */
+  private static final int INFINITY = 1 << 14;
+  /**
+   * Length of the sequence of kinds in the key when it is cut after the patches that can still be bought
+   */
+  private static final int TRUNCATED = 63;
+  /**
+   * Bonus of the special tile
+   */
+  private static final int BONUS = 7;
+  /**
+   * Squares of each aligned block, low then high part
+   */
+  private static final long[] BLOCK_LOW = new long[BLOCKS];
+  private static final long[] BLOCK_HIGH = new long[BLOCKS];
+  /**
+   * Squares of each 7x7 square, low then high part
+   */
+  private static final long[] SEVEN_LOW = new long[9];
+  private static final long[] SEVEN_HIGH = new long[9];
+
+  static {
+    for (var block = 0; block < BLOCKS; block++)
+      fill(BLOCK_LOW, BLOCK_HIGH, block, 2 * (block % 4), 2 * (block / 4), 2);
+    for (var square = 0; square < 9; square++)
+      fill(SEVEN_LOW, SEVEN_HIGH, square, square % 3, square / 3, 7);
+  }
+
+  private final Memo memo;
+  private final long maxStates;
+  private final Decider fallback;
+  /**
+   * Patches of the two kinds : index 1 for the kind of Patch.cubeBasic1, 0 for the one of Patch.cubeBasic2
+   */
+  private final Patch[] kinds = { Patch.cubeBasic2(), Patch.cubeBasic1() };
+  /**
+   * Buttons of the time board on the squares 1 to i, for each index i
+   */
+  private final int[] buttonsBefore = new int[LAST + 1];
+  /**
+   * Squares of each quilt board outside of its full aligned blocks during the current search
+   */
+  private final long[] residue = new long[4];
+
+  /* the position of the search, index 0 for the player 1 and 1 for the player 2 */
+  private final int[] button = new int[2];
+  private final int[] location = new int[2];
+  private final int[] income = new int[2];
+  private final long[] low = new long[2];
+  private final long[] high = new long[2];
+  /**
+   * Kinds of the patches of the circle from the neutral token (bit i set if the patch i is of the kind 1)
+   */
+  private long sequence;
+  private int length;
+  private boolean tokenOneOnTwo;
+  /**
+   * id of the owner of the special tile, 0 if nobody has it
+   */
+  private int bonusOwner;
+
+  private long states;
+  private boolean aborted;
+  private boolean lastSolved;
+  private boolean lastExact;
+  private int lastMargin;
+  private int lastIndex;
+  private long lastNanos;
+
+  /**
+   * Memory of the solved positions : buckets of two entries of three longs (the two longs of the key and the value).
+   * A value packs the bounds of the gain, the best move and the size of the search that found them.
+   */
+  private static final class Memo {
+    /**
+     * Bit set in the first long of every key, so that a used entry is never zero
+     */
+    private static final long USED = 1L << 63;
+    /**
+     * Value returned for a position that is not in the memory
+     */
+    private static final long ABSENT = 0;
+    private final long[] table;
+    private final int mask;
+    private long size;
+
+    private Memo(int megabytes) {
+      var buckets = TranspositionTable.entries(megabytes, 6 * Long.BYTES);
+      if (buckets > 1 << 26)
+        throw new IllegalArgumentException("the memory is too big for the heap");
+      table = new long[(int) buckets * 6];
+      mask = (int) buckets - 1;
+    }
+
+    private int bucket(long first, long second) {
+      var value = first * 0x9E37_79B9_7F4A_7C15L ^ second;
+      value = (value ^ (value >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+      value = (value ^ (value >>> 27)) * 0x94D0_49BB_1331_11EBL;
+      return ((int) (value ^ (value >>> 31)) & mask) * 6;
+    }
+
+    private long get(long first, long second) {
+      var bucket = bucket(first, second);
+      for (var entry = bucket; entry < bucket + 6; entry += 3) {
+        if (table[entry] == first && table[entry + 1] == second)
+          return table[entry + 2];
+      }
+      return ABSENT;
+    }
+
+    private void put(long first, long second, long value) {
+      var bucket = bucket(first, second);
+      var victim = bucket;
+      for (var entry = bucket; entry < bucket + 6; entry += 3) {
+        if (table[entry] == first && table[entry + 1] == second) {
+          victim = entry;
+          break;
+        }
+        if (table[entry] == 0 || (table[victim] != 0 && work(table[entry + 2]) < work(table[victim + 2])))
+          victim = entry;
+      }
+      if (table[victim] == 0)
+        size++;
+      table[victim] = first;
+      table[victim + 1] = second;
+      table[victim + 2] = value;
+    }
+
+    private void clear() {
+      Arrays.fill(table, 0);
+      size = 0;
+    }
+
+    /**
+     * Packs a value, never ABSENT since the work is at least 1
+     */
+    private static long pack(int lower, int upper, int move, long states) {
+      var work = Long.SIZE - Long.numberOfLeadingZeros(states);
+      return (long) lower << 32 | (upper & 0xFFFFL) << 16 | work << 2 | move;
+    }
+
+    private static int lower(long value) {
+      return (int) (value >> 32);
+    }
+
+    private static int upper(long value) {
+      return (short) (value >>> 16);
+    }
+
+    private static int move(long value) {
+      return (int) value & 0b11;
+    }
+
+    private static int work(long value) {
+      return (int) (value >>> 2) & 0x3FFF;
+    }
+  }
+
+  /**
+   * Constructor for BasicSolver
+   * @param megabytes size of the memory of the solver in megabytes
+   * @param maxStates maximum number of states searched by a solve (0 for no limit)
+   * @param fallback bot deciding the moves of the positions the solver gives up
+   */
+  public BasicSolver(int megabytes, long maxStates, Decider fallback) {
+    if (maxStates < 0)
+      throw new IllegalArgumentException("maxStates cannot be negative");
+    memo = new Memo(megabytes);
+    this.maxStates = maxStates == 0 ? Long.MAX_VALUE : maxStates;
+    this.fallback = Objects.requireNonNull(fallback);
+  }
+
+  /**
+   * Returns the number of positions searched by the last solve (memorized positions excepted)
+   * @return the number of states explored
+   */
+  public long statesExplored() {
+    return states;
+  }
+
+  /**
+   * Returns the number of positions in the memory of the solver
+   * @return the size of the memo table
+   */
+  public long memoSize() {
+    return memo.size;
+  }
+
+  /**
+   * Returns the margin computed by the last solve
+   * @return the final score of the player to move minus the one of his opponent, with perfect play if the solve is exact
+   * (see isExact), otherwise with perfect play over aligned placements
+   */
+  public int lastMargin() {
+    return lastMargin;
+  }
+
+  /**
+   * Checks if the last solve is exact : it has not given up and every square of the quilt boards
+   * was part of a full aligned block, so that aligned placements lose nothing
+   * @return true if lastMargin is the perfect-play margin of the position
+   */
+  public boolean isExact() {
+    return lastExact;
+  }
+
+  /**
+   * Generates a string describing the last solve
+   * @return the corresponding string
+   */
+  public String report() {
+    var result = !lastSolved ? "gave up" : lastExact ? "margin " + lastMargin : "approximate margin " + lastMargin;
+    return String.format("Basic solver : %s, %d states explored in %.0f ms, %d positions memorized",
+                         result, states, lastNanos / 1e6, memo.size);
+  }
+
+  /**
+   * Solves a position of the basic mode
+   * @param game the game, left unchanged
+   * @return true if the position is solved (see lastMargin and isExact), false if the solver gave up
+   */
+  public boolean solve(Game game) {
+    Objects.requireNonNull(game);
+    if (game.type() != 0)
+      throw new IllegalArgumentException("the solver only plays the basic mode");
+    if (game.isOver())
+      throw new IllegalStateException("No legal move, the game is over");
+    var start = System.nanoTime();
+    load(game);
+    states = 0;
+    aborted = false;
+    var player = current();
+    var gain = mtdf();
+    lastSolved = !aborted;
+    lastExact = lastSolved && (residue[0] | residue[1] | residue[2] | residue[3]) == 0;
+    lastMargin = score(player) - score(1 - player) + gain;
+    lastIndex = Memo.move(memo.get(firstKey(), secondKey()));
+    lastNanos = System.nanoTime() - start;
+    return lastSolved;
+  }
+
+  @Override
+  public void close() {
+    fallback.close();
+  }
+
+  @Override
+  public int decide(Game game) {
+    if (!solve(game))
+      return fallback.decide(game);
+    if (lastIndex == 0)
+      return Move.encode(Move.SKIP, 0, 0, 0);
+    var player = current();
+    var block = freeBlock(low[player], high[player]);
+    return Move.encode(Move.BUY, lastIndex - 1, 0, BitBoard.index(2 * (block % 4), 2 * (block / 4)));
+  }
+
+  /**
+   * Copies a position into the fields of the search, the memory is cleared if needed
+   * @param game the game
+   */
+  private void load(Game game) {
+    var patchcircle = game.patchcircle();
+    var remaining = patchcircle.remaining();
+    var cursor = patchcircle.cursor();
+    sequence = 0;
+    length = 0;
+    for (var bits = remaining & (-1L << cursor); bits != 0; bits &= bits - 1)
+      addKind(patchcircle.patchInSlot(Long.numberOfTrailingZeros(bits)));
+    for (var bits = remaining & ~(-1L << cursor); bits != 0; bits &= bits - 1)
+      addKind(patchcircle.patchInSlot(Long.numberOfTrailingZeros(bits)));
+    for (var i = 1; i <= LAST; i++)
+      buttonsBefore[i] = buttonsBefore[i - 1] + game.timeboard().buttonsCrossed(i - 1, i);
+    var changed = false;
+    for (var id = 0; id < 2; id++) {
+      var player = id == 0 ? game.player1() : game.player2();
+      var quiltboard = player.quiltboard();
+      button[id] = player.button();
+      location[id] = player.location();
+      income[id] = quiltboard.buttons();
+      low[id] = quiltboard.low();
+      high[id] = quiltboard.high();
+      var blocks = blocks(low[id], high[id]);
+      var residueLow = low[id] & ~blocksLow(blocks);
+      var residueHigh = high[id] & ~blocksHigh(blocks);
+      changed |= residueLow != residue[2 * id] || residueHigh != residue[2 * id + 1];
+      residue[2 * id] = residueLow;
+      residue[2 * id + 1] = residueHigh;
+    }
+    if (changed)
+      memo.clear();
+    tokenOneOnTwo = game.tokenOneOnTwo();
+    bonusOwner = game.player1().specialTile() ? 1 : game.player2().specialTile() ? 2 : 0;
+  }
+
+  /**
+   * Appends the kind of a patch to the sequence
+   * @param patch the patch
+   */
+  private void addKind(Patch patch) {
+    if (sameKind(patch, kinds[1]))
+      sequence |= 1L << length;
+    else if (!sameKind(patch, kinds[0]))
+      throw new IllegalArgumentException("the circle contains patches of the full mode");
+    length++;
+  }
+
+  /**
+   * Checks if two patches are interchangeable for the solver
+   * @param patch a patch
+   * @param other another patch
+   * @return true if they have the same mask, price, time and buttons
+   */
+  private static boolean sameKind(Patch patch, Patch other) {
+    return patch.mask() == other.mask() && patch.price() == other.price() && patch.time() == other.time()
+        && patch.buttons() == other.buttons();
+  }
+
+  /**
+   * Computes the gain of the player to move with a sequence of null window searches (MTD(f)),
+   * each of them only proves that the gain is above or below a value, which cuts most of the tree
+   * @return the gain
+   */
+  private int mtdf() {
+    var guess = 0;
+    var lower = -INFINITY;
+    var upper = INFINITY;
+    while (lower < upper && !aborted) {
+      var beta = guess == lower ? guess + 1 : guess;
+      guess = gain(beta - 1, beta);
+      if (guess < beta)
+        upper = guess;
+      else
+        lower = guess;
+    }
+    return guess;
+  }
+
+  /**
+   * Computes with an alpha-beta search the margin the player to move gains until the end of the game with perfect play.
+   * The bounds found are memorized with the best move (0 for skip, i + 1 to buy the patch i).
+   * @param alpha lower bound of the window
+   * @param beta upper bound of the window
+   * @return the gain if it is inside the window, otherwise a bound of the gain on the same side as the window bound
+   */
+  private int gain(int alpha, int beta) {
+    var first = firstKey();
+    var second = secondKey();
+    var known = memo.get(first, second);
+    var lower = -INFINITY;
+    var upper = INFINITY;
+    var knownMove = -1;
+    if (known != Memo.ABSENT) {
+      lower = Memo.lower(known);
+      upper = Memo.upper(known);
+      knownMove = Memo.move(known);
+      if (lower >= beta || lower == upper)
+        return lower;
+      if (upper <= alpha)
+        return upper;
+      alpha = Math.max(alpha, lower);
+      beta = Math.min(beta, upper);
+    }
+    if (++states > maxStates)
+      aborted = true;
+    if (aborted)
+      return 0;
+    var startStates = states;
+    var player = current();
+    var canBuy = freeBlock(low[player], high[player]) >= 0;
+    var before = score(player) - score(1 - player);
+    var best = -INFINITY;
+    var bestMove = 0;
+    var originalAlpha = alpha;
+    /* a move only changes these fields, they are restored after each move */
+    var savedButton = button[player];
+    var savedLocation = location[player];
+    var savedIncome = income[player];
+    var savedLow = low[player];
+    var savedHigh = high[player];
+    var savedSequence = sequence;
+    var savedLength = length;
+    var savedToken = tokenOneOnTwo;
+    var savedBonus = bonusOwner;
+    /* the memorized move first, then the purchases, then skip */
+    for (var i = -1; i <= 3; i++) {
+      var index = i < 0 ? knownMove : (i + 1) % 4;
+      if (index < 0 || (i >= 0 && index == knownMove))
+        continue;
+      if (index > 0 && (!canBuy || index > length || kind(index - 1).price() > savedButton))
+        continue;
+      if (index == 0)
+        skip(player);
+      else
+        buy(player, index - 1);
+      var delta = score(player) - score(1 - player) - before;
+      var value = delta;
+      if (!isOver()) {
+        if (current() == player)
+          value += gain(alpha - delta, beta - delta);
+        else
+          value -= gain(delta - beta, delta - alpha);
+      }
+      button[player] = savedButton;
+      location[player] = savedLocation;
+      income[player] = savedIncome;
+      low[player] = savedLow;
+      high[player] = savedHigh;
+      sequence = savedSequence;
+      length = savedLength;
+      tokenOneOnTwo = savedToken;
+      bonusOwner = savedBonus;
+      if (aborted)
+        return 0;
+      if (value > best) {
+        best = value;
+        bestMove = index;
+      }
+      if (value > alpha)
+        alpha = value;
+      if (alpha >= beta)
+        break;
+    }
+    if (best >= beta)
+      lower = Math.max(lower, best);
+    else if (best <= originalAlpha)
+      upper = Math.min(upper, best);
+    else
+      lower = upper = best;
+    /* an upper bound says nothing about the best move, the move of a previous lower bound is kept */
+    var move = best <= originalAlpha && knownMove >= 0 ? knownMove : bestMove;
+    memo.put(first, second, Memo.pack(lower, upper, move, states - startStates + 1));
+    return best;
+  }
+
+  /**
+   * Returns the patch at an index of the sequence
+   * @param index index in the sequence
+   * @return a patch of its kind
+   */
+  private Patch kind(int index) {
+    return kinds[(int) (sequence >>> index) & 1];
+  }
+
+  /**
+   * Returns the player who has to play, as Game.currentPlayer (there is no special patch in the basic mode)
+   * @return 0 for the player 1, 1 for the player 2
+   */
+  private int current() {
+    if (location[0] != location[1])
+      return location[0] < location[1] ? 0 : 1;
+    return tokenOneOnTwo ? 0 : 1;
+  }
+
+  /**
+   * Checks if both players have finished
+   * @return true if the game is over
+   */
+  private boolean isOver() {
+    return location[0] == LAST && location[1] == LAST;
+  }
+
+  /**
+   * Computes the score of a player as Player.score
+   * @param player 0 for the player 1, 1 for the player 2
+   * @return the score
+   */
+  private int score(int player) {
+    return button[player] - 2 * (BitBoard.SQUARES - Long.bitCount(low[player]) - Long.bitCount(high[player]));
+  }
+
+  /**
+   * Moves a player forward on the time board, he earns his income for every button crossed
+   * @param player the player
+   * @param destination index of the square (bounded by the last one)
+   */
+  private void move(int player, int destination) {
+    destination = Math.min(destination, LAST);
+    if (destination > location[player])
+      button[player] += (buttonsBefore[destination] - buttonsBefore[location[player]]) * income[player];
+    location[player] = destination;
+  }
+
+  /**
+   * Applies a skip as Game does : the player moves in front of his opponent and earns one button per square
+   * @param player the current player
+   */
+  private void skip(int player) {
+    var opponent = 1 - player;
+    var distance = location[opponent] - location[player] + (location[opponent] == LAST ? 0 : 1);
+    move(player, location[player] + distance);
+    button[player] += distance;
+    tokenOneOnTwo = false;
+  }
+
+  /**
+   * Applies a purchase as Game does : the patch is placed on the first free aligned block and paid, then the player moves
+   * @param player the current player
+   * @param index index of the patch in the sequence
+   */
+  private void buy(int player, int index) {
+    var patch = kind(index);
+    var block = freeBlock(low[player], high[player]);
+    low[player] |= BLOCK_LOW[block];
+    high[player] |= BLOCK_HIGH[block];
+    income[player] += patch.buttons();
+    button[player] -= patch.price();
+    move(player, location[player] + patch.time());
+    tokenOneOnTwo = player == 0 && location[0] == location[1];
+    /* the patches after the chosen one come first, the ones before it go to the back of the circle */
+    sequence = sequence >>> (index + 1) | (sequence & ((1L << index) - 1)) << (length - index - 1);
+    length--;
+    if (bonusOwner == 0 && hasSevenBySeven(low[player], high[player])) {
+      bonusOwner = player + 1;
+      button[player] += BONUS;
+    }
+  }
+
+  /**
+   * Returns the most patches a player can still buy : one per free aligned block,
+   * and one per move of the shortest time of a patch
+   * @param player the player
+   * @return the number of purchases
+   */
+  private int purchases(int player) {
+    if (location[player] == LAST)
+      return 0;
+    var minTime = Math.min(kinds[0].time(), kinds[1].time());
+    return Math.min(freeBlocks(low[player], high[player]), (LAST - location[player] + minTime - 1) / minTime);
+  }
+
+  /**
+   * Encodes the kinds of the patches of the circle, the turn order, the owner of the special tile and the incomes
+   * @return the first long of the key
+   */
+  private long firstKey() {
+    var kindsKey = sequence;
+    var lengthKey = length;
+    /* the purchase number j looks at most at the patch 3j + 2 of the sequence : the others never matter */
+    var reach = 3 * (purchases(0) + purchases(1));
+    if (length > reach) {
+      kindsKey &= (1L << reach) - 1;
+      lengthKey = TRUNCATED;
+    }
+    return Memo.USED
+         | kindsKey
+         | (long) lengthKey << 40
+         | (tokenOneOnTwo ? 1L << 46 : 0)
+         | (long) bonusOwner << 47
+         | (long) active(0, income[0]) << 49
+         | (long) active(1, income[1]) << 54;
+  }
+
+  /**
+   * Encodes the locations, the full aligned blocks and the bounded buttons of the players
+   * @return the second long of the key
+   */
+  private long secondKey() {
+    return player(0) | player(1) << 28;
+  }
+
+  /**
+   * Encodes the part of a player in the second long of the key
+   * @param player the player
+   * @return 28 bits : blocks, location, buttons
+   */
+  private long player(int player) {
+    var maxPrice = Math.max(kinds[0].price(), kinds[1].price());
+    var buttons = Math.min(button[player], maxPrice * purchases(player));
+    return active(player, blocks(low[player], high[player])) | (long) location[player] << 16
+         | (long) active(player, buttons) << 22;
+  }
+
+  /**
+   * Returns a value of a player if he can still move, 0 otherwise (his future does not depend on it)
+   * @param player 0 for the player 1, 1 for the player 2
+   * @param value the value
+   * @return the value or 0
+   */
+  private int active(int player, int value) {
+    return location[player] == LAST ? 0 : value;
+  }
+
+  /**
+   * Sets the squares of a square area in masks
+   * @param low low parts of the masks
+   * @param high high parts of the masks
+   * @param index index of the mask
+   * @param x x coordinate of the top left square
+   * @param y y coordinate of the top left square
+   * @param size side of the area
+   */
+  private static void fill(long[] low, long[] high, int index, int x, int y, int size) {
+    for (var dy = 0; dy < size; dy++) {
+      for (var dx = 0; dx < size; dx++) {
+        var square = BitBoard.index(x + dx, y + dy);
+        if (square < Long.SIZE)
+          low[index] |= 1L << square;
+        else
+          high[index] |= 1L << (square - Long.SIZE);
+      }
+    }
+  }
+
+  /**
+   * Checks if a quilt board has a full 7x7 square
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return true if a 7x7 square is full
+   */
+  private static boolean hasSevenBySeven(long low, long high) {
+    for (var square = 0; square < 9; square++) {
+      if ((low & SEVEN_LOW[square]) == SEVEN_LOW[square] && (high & SEVEN_HIGH[square]) == SEVEN_HIGH[square])
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the first free aligned block of a quilt board
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the index of the block, -1 if every block has an occupied square
+   */
+  private static int freeBlock(long low, long high) {
+    for (var block = 0; block < BLOCKS; block++) {
+      if ((low & BLOCK_LOW[block]) == 0 && (high & BLOCK_HIGH[block]) == 0)
+        return block;
+    }
+    return -1;
+  }
+
+  /**
+   * Counts the free aligned blocks of a quilt board
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the number of blocks without any occupied square
+   */
+  private static int freeBlocks(long low, long high) {
+    var count = 0;
+    for (var block = 0; block < BLOCKS; block++) {
+      if ((low & BLOCK_LOW[block]) == 0 && (high & BLOCK_HIGH[block]) == 0)
+        count++;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the full aligned blocks of a quilt board
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return bitmask of the blocks
+   */
+  private static int blocks(long low, long high) {
+    var blocks = 0;
+    for (var block = 0; block < BLOCKS; block++) {
+      if ((low & BLOCK_LOW[block]) == BLOCK_LOW[block] && (high & BLOCK_HIGH[block]) == BLOCK_HIGH[block])
+        blocks |= 1 << block;
+    }
+    return blocks;
+  }
+
+  /**
+   * Returns the squares of aligned blocks
+   * @param blocks bitmask of the blocks
+   * @return squares 0 to 63 of the blocks
+   */
+  private static long blocksLow(int blocks) {
+    var low = 0L;
+    for (; blocks != 0; blocks &= blocks - 1)
+      low |= BLOCK_LOW[Integer.numberOfTrailingZeros(blocks)];
+    return low;
+  }
+
+  /**
+   * Returns the squares of aligned blocks
+   * @param blocks bitmask of the blocks
+   * @return squares 64 to 80 of the blocks
+   */
+  private static long blocksHigh(int blocks) {
+    var high = 0L;
+    for (; blocks != 0; blocks &= blocks - 1)
+      high |= BLOCK_HIGH[Integer.numberOfTrailingZeros(blocks)];
+    return high;
+  }
+}
@@ -0,0 +1,257 @@
+package fr.uge.patchwork2;
+
+/**
+ * Collection of methods used to manipulate a 9x9 board packed into two longs.
+ *
+ * The square (x, y) of the board is represented by the bit number y * 9 + x :
+ * the squares 0 to 63 are stored in the "low" long and the squares 64 to 80 in the "high" long.
+ *
+ * A patch form is encoded in the same format (with a row length of 9) from its top left corner,
+ * which means that placing it at an anchor point is only a matter of shifting it.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class BitBoard {
+  /**
+   * Length of a row of the board
+   */
+  public static final int WIDTH = 9;
+  /**
+   * Number of squares of the board
+   */
+  public static final int SQUARES = WIDTH * WIDTH;
+  /**
+   * Mask of the valid bits of the high long (squares 64 to 80)
+   */
+  public static final long HIGH_MASK = (1L << (SQUARES - 64)) - 1;
+  /**
+   * Anchor squares where a form of a given size stays inside the board,
+   * low and high longs for each size (index (sizeY * 8 + sizeX) * 2)
+   */
+  private static final long[] ANCHORS = new long[8 * 8 * 2];
+  /**
+   * Squares having a right neighbour, then squares having a bottom neighbour (low and high longs)
+   */
+  private static final long RIGHT_LOW;
+  private static final long RIGHT_HIGH;
+  private static final long DOWN_LOW;
+  private static final long DOWN_HIGH;
+  
+  static {
+    for (var sizeY = 1; sizeY < 8; sizeY++) {
+      for (var sizeX = 1; sizeX < 8; sizeX++) {
+        for (var y = 0; y + sizeY <= WIDTH; y++) {
+          for (var x = 0; x + sizeX <= WIDTH; x++) {
+            var index = index(x, y);
+            if (index < Long.SIZE)
+              ANCHORS[(sizeY * 8 + sizeX) * 2] |= 1L << index;
+            else
+              ANCHORS[(sizeY * 8 + sizeX) * 2 + 1] |= 1L << (index - Long.SIZE);
+          }
+        }
+      }
+    }
+    RIGHT_LOW = anchorsLow(2, 1);
+    RIGHT_HIGH = anchorsHigh(2, 1);
+    DOWN_LOW = anchorsLow(1, 2);
+    DOWN_HIGH = anchorsHigh(1, 2);
+  }
+
+  /**
+   * Returns the index of the square (x, y) in the packed board
+   * @param x x coordinate of the square
+   * @param y y coordinate of the square
+   * @return the index of the square
+   */
+  public static int index(int x, int y) {
+    return y * WIDTH + x;
+  }
+
+  /**
+   * Returns the low long of a shape mask shifted to the given square
+   * @param mask mask of the shape anchored at the square (0, 0)
+   * @param shift index of the anchor square
+   * @return the part of the shifted mask covering the squares 0 to 63
+   */
+  public static long shiftLow(long mask, int shift) {
+    return shift < Long.SIZE ? mask << shift : 0L;
+  }
+
+  /**
+   * Returns the high long of a shape mask shifted to the given square
+   * @param mask mask of the shape anchored at the square (0, 0)
+   * @param shift index of the anchor square
+   * @return the part of the shifted mask covering the squares 64 to 80
+   */
+  public static long shiftHigh(long mask, int shift) {
+    if (shift == 0)
+      return 0L;
+    return shift < Long.SIZE ? mask >>> (Long.SIZE - shift) : mask << (shift - Long.SIZE);
+  }
+
+  /**
+   * Returns the low long of a packed board shifted towards the square 0
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @param shift number of squares to shift (between 0 and 63)
+   * @return the squares 0 to 63 of the shifted board
+   */
+  public static long shiftRightLow(long low, long high, int shift) {
+    return shift == 0 ? low : (low >>> shift) | (high << (Long.SIZE - shift));
+  }
+  
+  /**
+   * Returns the high long of a packed board shifted towards the square 0
+   * @param high squares 64 to 80
+   * @param shift number of squares to shift (between 0 and 63)
+   * @return the squares 64 to 80 of the shifted board
+   */
+  public static long shiftRightHigh(long high, int shift) {
+    return high >>> shift;
+  }
+  
+  /**
+   * Returns the low long of a packed board shifted away from the square 0
+   * @param low squares 0 to 63
+   * @param shift number of squares to shift (between 0 and 63)
+   * @return the squares 0 to 63 of the shifted board
+   */
+  public static long shiftLeftLow(long low, int shift) {
+    return low << shift;
+  }
+
+  /**
+   * Returns the high long of a packed board shifted away from the square 0, the squares past 80 are dropped
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @param shift number of squares to shift (between 0 and 63)
+   * @return the squares 64 to 80 of the shifted board
+   */
+  public static long shiftLeftHigh(long low, long high, int shift) {
+    return (shift == 0 ? high : (high << shift) | (low >>> (Long.SIZE - shift))) & HIGH_MASK;
+  }
+  
+  /**
+   * Returns the low long of the anchor squares where a form of the given size stays inside the board
+   * @param sizeX horizontal size of the form (between 1 and 7)
+   * @param sizeY vertical size of the form (between 1 and 7)
+   * @return the squares 0 to 63 that are valid anchors
+   */
+  public static long anchorsLow(int sizeX, int sizeY) {
+    return ANCHORS[(sizeY * 8 + sizeX) * 2];
+  }
+  
+  /**
+   * Returns the high long of the anchor squares where a form of the given size stays inside the board
+   * @param sizeX horizontal size of the form (between 1 and 7)
+   * @param sizeY vertical size of the form (between 1 and 7)
+   * @return the squares 64 to 80 that are valid anchors
+   */
+  public static long anchorsHigh(int sizeX, int sizeY) {
+    return ANCHORS[(sizeY * 8 + sizeX) * 2 + 1];
+  }
+  
+  /**
+   * Checks if the square at the given index is set in the packed board
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @param index index of the square
+   * @return true if the square is set, otherwise false
+   */
+  public static boolean isSet(long low, long high, int index) {
+    return index < Long.SIZE ? (low & (1L << index)) != 0 : (high & (1L << (index - Long.SIZE))) != 0;
+  }
+
+  /**
+   * Returns the low long of the set squares and of their orthogonal neighbours
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the squares 0 to 63 of the grown board
+   */
+  public static long growLow(long low, long high) {
+    return low | shiftLeftLow(low & RIGHT_LOW, 1) | shiftRightLow(low, high, 1) & RIGHT_LOW
+         | shiftLeftLow(low & DOWN_LOW, WIDTH) | shiftRightLow(low, high, WIDTH) & DOWN_LOW;
+  }
+
+  /**
+   * Returns the high long of the set squares and of their orthogonal neighbours
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the squares 64 to 80 of the grown board
+   */
+  public static long growHigh(long low, long high) {
+    return high | shiftLeftHigh(low & RIGHT_LOW, high & RIGHT_HIGH, 1) | shiftRightHigh(high, 1) & RIGHT_HIGH
+         | shiftLeftHigh(low & DOWN_LOW, high & DOWN_HIGH, WIDTH) | shiftRightHigh(high, WIDTH) & DOWN_HIGH;
+  }
+
+  /**
+   * Counts the pairs of orthogonally adjacent set squares
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the number of pairs
+   */
+  public static int adjacentPairs(long low, long high) {
+    return Long.bitCount(low & shiftRightLow(low, high, 1) & RIGHT_LOW)
+         + Long.bitCount(high & shiftRightHigh(high, 1) & RIGHT_HIGH)
+         + Long.bitCount(low & shiftRightLow(low, high, WIDTH) & DOWN_LOW)
+         + Long.bitCount(high & shiftRightHigh(high, WIDTH) & DOWN_HIGH);
+  }
+
+  /**
+   * Counts the set squares whose right or bottom neighbour is not set (the sides to a square of the board that is not set)
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the number of sides shared by a set square and a square that is not set
+   */
+  public static int sides(long low, long high) {
+    return Long.bitCount((low ^ shiftRightLow(low, high, 1)) & RIGHT_LOW)
+         + Long.bitCount((high ^ shiftRightHigh(high, 1)) & RIGHT_HIGH)
+         + Long.bitCount((low ^ shiftRightLow(low, high, WIDTH)) & DOWN_LOW)
+         + Long.bitCount((high ^ shiftRightHigh(high, WIDTH)) & DOWN_HIGH);
+  }
+
+  /**
+   * Counts the set squares without any set orthogonal neighbour
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80 (the other bits must be cleared)
+   * @return the number of isolated squares
+   */
+  public static int isolated(long low, long high) {
+    /* squares whose right, left, bottom or top neighbour is set */
+    var neighbourLow = shiftRightLow(low, high, 1) & RIGHT_LOW
+                     | shiftLeftLow(low & RIGHT_LOW, 1)
+                     | shiftRightLow(low, high, WIDTH) & DOWN_LOW
+                     | shiftLeftLow(low & DOWN_LOW, WIDTH);
+    var neighbourHigh = shiftRightHigh(high, 1) & RIGHT_HIGH
+                      | shiftLeftHigh(low & RIGHT_LOW, high & RIGHT_HIGH, 1)
+                      | shiftRightHigh(high, WIDTH) & DOWN_HIGH
+                      | shiftLeftHigh(low & DOWN_LOW, high & DOWN_HIGH, WIDTH);
+    return Long.bitCount(low & ~neighbourLow) + Long.bitCount(high & ~neighbourHigh);
+  }
+
+  /**
+   * Returns the low long of the squares whose four orthogonal neighbours are set (the squares on the border are never surrounded)
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80 (the other bits must be cleared)
+   * @return the squares 0 to 63 surrounded by set squares
+   */
+  static long surroundedLow(long low, long high) {
+    return shiftRightLow(low, high, 1) & RIGHT_LOW
+         & shiftLeftLow(low & RIGHT_LOW, 1)
+         & shiftRightLow(low, high, WIDTH) & DOWN_LOW
+         & shiftLeftLow(low & DOWN_LOW, WIDTH);
+  }
+
+  /**
+   * Returns the high long of the squares whose four orthogonal neighbours are set (the squares on the border are never surrounded)
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80 (the other bits must be cleared)
+   * @return the squares 64 to 80 surrounded by set squares
+   */
+  static long surroundedHigh(long low, long high) {
+    return shiftRightHigh(high, 1) & RIGHT_HIGH
+         & shiftLeftHigh(low & RIGHT_LOW, high & RIGHT_HIGH, 1)
+         & shiftRightHigh(high, WIDTH) & DOWN_HIGH
+         & shiftLeftHigh(low & DOWN_LOW, high & DOWN_HIGH, WIDTH);
+  }
+}
@@ -0,0 +1,29 @@
+package fr.uge.patchwork2;
+
+/**
+ * Chooses the moves of a player, used by GameEngine each time that player has to play.
+ *
+ * A decider can be a human behind a front end (terminal or graphic mode) or a bot.
+ * The move is returned encoded (see Move.encode) so that bots do not need to allocate anything.
+ * A decider holding threads releases them when it is closed, the others have nothing to close.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+@FunctionalInterface
+public interface Decider extends AutoCloseable {
+  /**
+   * Chooses the move of the current player of the game.
+   * The game must be left in the state it was given (a bot can apply and undo moves to explore it).
+   * @param game the game, its current player is the player of this decider
+   * @return the chosen move, encoded (see Move.encode), it must be legal
+   */
+  int decide(Game game);
+
+  /**
+   * Releases the resources of the decider, it must not be used anymore.
+   * Does nothing by default.
+   */
+  @Override
+  default void close() {
+  }
+}
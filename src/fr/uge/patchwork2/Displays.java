@@ -31,9 +31,11 @@ public class Displays {
   public static String displayResult(Player player1, Player player2) {
     Objects.requireNonNull(player1);
     Objects.requireNonNull(player2);
-    if (player1.score() > player2.score())
+    var score1 = player1.score();
+    var score2 = player2.score();
+    if (score1 > score2)
       return "Player 1 has won !";
-    else if (player1.score() < player2.score())
+    else if (score1 < score2)
       return "Player 2 has won !";
     else
       return "It's a draw !";
@@ -69,10 +71,10 @@ public class Displays {
     Objects.requireNonNull(currentPlayer);
     var sb = new StringBuilder();
     sb.append(Displays.displayTimeBoardState(timeboard, player1, player2, tokenOneOnTwo));
-    sb.append("# You currently have " ).append(currentPlayer.button()).append(" buttons\n");
-    sb.append("# Patches you can choose :\n");
+    sb.append("# Player ").append(currentPlayer.id()).append(" currently has ").append(currentPlayer.button()).append(" buttons\n");
+    sb.append("# Patches player ").append(currentPlayer.id()).append(" can choose :\n");
     sb.append(Displays.displayPatchCircle(patchcircle));
-    sb.append("# State of your quiltboard:\n");
+    sb.append("# State of the quiltboard of player ").append(currentPlayer.id()).append(":\n");
     return sb.append(Displays.displayQuiltBoard(currentPlayer.quiltboard())).toString();
   }
   
@@ -181,7 +183,8 @@ public class Displays {
 		var value = new StringBuilder();
 		var s = "═".repeat(TimeBoard.getSIZE()) + "\n";
 		value.append(s);
-		for(var element:timeBoard.path()) {
+		for(var i = 0; i < TimeBoard.getSIZE(); i++) {
+			var element = timeBoard.element(i);
 			if(element.equals(TimeBoardElement.button)) {
 				value.append("©");
 			}
@@ -248,12 +251,14 @@ public class Displays {
 	
 	/**
 	 * Creates a congratulation String to the first player who has completed a 7x7 full square in his quiltboard
+	 * @param player the player who has obtained the special tile
 	 * @return the corresponding String
 	 */
-  public static String displaySpecialTileMessage() {
+  public static String displaySpecialTileMessage(Player player) {
+    Objects.requireNonNull(player);
     var sb = new StringBuilder();
-    sb.append("You are the first to have completed a 7 by 7 square !\n");
-    sb.append("You have obtained the special tile which is worth 7 buttons!\n");
+    sb.append("Player ").append(player.id()).append(" is the first to have completed a 7 by 7 square !\n");
+    sb.append("Player ").append(player.id()).append(" has obtained the special tile which is worth 7 buttons!\n");
     return sb.toString();
   }
 }
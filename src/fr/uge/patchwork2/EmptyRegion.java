@@ -0,0 +1,70 @@
+package fr.uge.patchwork2;
+
+/**
+ * Represents a connected region of empty squares of a quilt board (see QuiltBoard.emptyRegion)
+ * @param low squares 0 to 63 of the region (see BitBoard for the layout)
+ * @param high squares 64 to 80 of the region
+ * @param size number of squares of the region
+ * @param minX smallest x coordinate of a square of the region
+ * @param minY smallest y coordinate of a square of the region
+ * @param maxX greatest x coordinate of a square of the region
+ * @param maxY greatest y coordinate of a square of the region
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public record EmptyRegion(long low, long high, int size, int minX, int minY, int maxX, int maxY) {
+  /**
+   * Constructor for EmptyRegion
+   * @param low squares 0 to 63 of the region
+   * @param high squares 64 to 80 of the region
+   * @param size number of squares of the region
+   * @param minX smallest x coordinate of a square of the region
+   * @param minY smallest y coordinate of a square of the region
+   * @param maxX greatest x coordinate of a square of the region
+   * @param maxY greatest y coordinate of a square of the region
+   */
+  public EmptyRegion {
+    if ((high & ~BitBoard.HIGH_MASK) != 0)
+      throw new IllegalArgumentException("squares out of the quilt board");
+    if (size != Long.bitCount(low) + Long.bitCount(high) || size == 0)
+      throw new IllegalArgumentException("invalid size of region");
+    if (minX > maxX || minY > maxY)
+      throw new IllegalArgumentException("invalid bounding box");
+  }
+
+  /**
+   * Creates the region made of the given squares, its size and bounding box are computed from them
+   * @param low squares 0 to 63 of the region
+   * @param high squares 64 to 80 of the region (at least one square must be set)
+   * @return the region
+   */
+  public static EmptyRegion of(long low, long high) {
+    var minX = BitBoard.WIDTH;
+    var maxX = -1;
+    var minY = BitBoard.WIDTH;
+    var maxY = -1;
+    for (var y = 0; y < BitBoard.WIDTH; y++) {
+      var row = row(low, high, y);
+      if (row == 0)
+        continue;
+      minY = Math.min(minY, y);
+      maxY = y;
+      minX = Math.min(minX, Integer.numberOfTrailingZeros(row));
+      maxX = Math.max(maxX, Integer.SIZE - 1 - Integer.numberOfLeadingZeros(row));
+    }
+    return new EmptyRegion(low, high, Long.bitCount(low) + Long.bitCount(high), minX, minY, maxX, maxY);
+  }
+
+  /**
+   * Extracts a row of a packed board
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @param y index of the row
+   * @return the nine squares of the row (bit x for the square (x, y))
+   */
+  private static int row(long low, long high, int y) {
+    var shift = y * BitBoard.WIDTH;
+    var bits = shift < Long.SIZE ? BitBoard.shiftRightLow(low, high, shift) : high >>> (shift - Long.SIZE);
+    return (int) bits & ((1 << BitBoard.WIDTH) - 1);
+  }
+}
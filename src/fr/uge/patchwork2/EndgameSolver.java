@@ -0,0 +1,303 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Exact solver of the end of a game (any mode), taking over from another bot once the players are close to the end.
+ *
+ * When the remaining time of the two players (the squares between their time tokens and the last square of the time board)
+ * is at most the threshold, the move is chosen by a complete alpha-beta search : the value of a position is the final score
+ * of the player to move minus the one of his opponent, with perfect play. Before, the move is asked to the fallback bot.
+ *
+ * The moves searched are either every legal move (exact, but each patch has up to 8 orientations and 81 anchors,
+ * so only small thresholds are solved quickly), or the candidates of PlayoutPolicy (each patch on the placement chosen by PlacementPolicy) :
+ * the solution is then exact for the games where every patch is placed this way.
+ * Near the end, the placement of a patch only changes the score through the patches that still fit and the special tile.
+ *
+ * Every searched position is stored in the transposition table with the depth MAX_DEPTH (complete search) :
+ * solving again the same ending, or one of its positions, is immediate.
+ * With the candidates only, the values are the ones the AlphaBetaBot stores for its complete subtrees,
+ * so the table can be shared with alpha-beta bots ; with every legal move, the table must only be used by solvers of the same kind.
+ * A solver keeps buffers between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class EndgameSolver implements Decider {
+  /**
+   * Value greater than the value of any position
+   */
+  private static final int INFINITY = 1_000_000;
+  /**
+   * Last index of the time board
+   */
+  private static final int LAST = TimeBoard.getSIZE() - 1;
+
+  private final TranspositionTable table;
+  private final int threshold;
+  private final boolean allMoves;
+  private final Decider fallback;
+  private final PlayoutPolicy policy;
+  /**
+   * Legal moves and ordered moves, one buffer per ply (more are created if needed)
+   */
+  private int[][] moves;
+  private int[][] ordered;
+  /**
+   * Choices (skip or one of the patches) of a position and their immediate values
+   */
+  private final int[] choices = new int[4];
+  private final int[] values = new int[4];
+  private int rootMove;
+  private long nodes;
+  private boolean lastSolved;
+  private int lastMargin;
+  private long lastNodes;
+  private long lastNanos;
+
+  /**
+   * Constructor for EndgameSolver
+   * @param table transposition table of the solver
+   * @param threshold remaining time of the two players below which the solver takes over
+   * @param allMoves true to search every legal move, false to search the candidates of PlayoutPolicy
+   * @param fallback bot deciding the moves before the threshold
+   */
+  public EndgameSolver(TranspositionTable table, int threshold, boolean allMoves, Decider fallback) {
+    this.table = Objects.requireNonNull(table);
+    if (threshold < 0)
+      throw new IllegalArgumentException("threshold cannot be negative");
+    this.threshold = threshold;
+    this.allMoves = allMoves;
+    this.fallback = Objects.requireNonNull(fallback);
+    policy = new PlayoutPolicy(new Random()); /* only the candidates are used, they do not depend on the generator */
+    moves = new int[0][];
+    ordered = new int[0][];
+  }
+
+  /**
+   * Returns the remaining time of the two players
+   * @param game the game
+   * @return the number of squares between the time tokens and the last square of the time board
+   */
+  public static int remainingTime(Game game) {
+    Objects.requireNonNull(game);
+    return 2 * LAST - game.player1().location() - game.player2().location();
+  }
+
+  /**
+   * Checks if the solver takes over in a position
+   * @param game the game
+   * @return true if the game is not over and the remaining time is at most the threshold
+   */
+  public boolean takesOver(Game game) {
+    return !game.isOver() && remainingTime(game) <= threshold;
+  }
+
+  /**
+   * Returns the margin computed by the last solve
+   * @return the final score of the player to move minus the one of his opponent, with perfect play
+   */
+  public int lastMargin() {
+    return lastMargin;
+  }
+
+  /**
+   * Returns the best move computed by the last solve
+   * @return the encoded move
+   */
+  public int lastMove() {
+    return rootMove;
+  }
+
+  /**
+   * Returns the number of nodes searched by the last solve
+   * @return the number of nodes (0 if the position was already solved)
+   */
+  public long lastNodes() {
+    return lastNodes;
+  }
+
+  /**
+   * Generates a string describing the last decision
+   * @return the corresponding string
+   */
+  public String report() {
+    if (!lastSolved)
+      return "Endgame solver : not in the endgame";
+    return String.format("Endgame solver : margin %d, %d nodes in %.0f ms", lastMargin, lastNodes, lastNanos / 1e6);
+  }
+
+  @Override
+  public void close() {
+    fallback.close();
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    if (!takesOver(game)) {
+      lastSolved = false;
+      return fallback.decide(game);
+    }
+    solve(game);
+    return rootMove;
+  }
+
+  /**
+   * Solves a position, whatever the remaining time (see lastMove for the best move)
+   * @param game the game, left in the same position
+   * @return the final score of the player to move minus the one of his opponent, with perfect play
+   */
+  public int solve(Game game) {
+    Objects.requireNonNull(game);
+    if (game.isOver())
+      throw new IllegalStateException("No legal move, the game is over");
+    var start = System.nanoTime();
+    nodes = 0;
+    lastMargin = search(game, 0, -INFINITY, INFINITY, game.currentPlayer().id());
+    lastSolved = true;
+    lastNodes = nodes;
+    lastNanos = System.nanoTime() - start;
+    return lastMargin;
+  }
+
+  /**
+   * Searches a position until the end of the game
+   * @param game the game in the position, left in the same position
+   * @param ply distance to the root
+   * @param alpha lower bound of the window
+   * @param beta upper bound of the window
+   * @param player id of the player to move (of the last player who moved if the game is over)
+   * @return the value of the position for the player, or a bound if it is outside the window
+   */
+  private int search(Game game, int ply, int alpha, int beta, int player) {
+    if (game.isOver())
+      return difference(game, player);
+    var hash = game.hash();
+    var entry = table.probe(hash);
+    var tableMove = -1;
+    if (entry != 0 && TranspositionTable.depth(entry) == TranspositionTable.MAX_DEPTH) {
+      tableMove = TranspositionTable.move(entry);
+      var value = TranspositionTable.value(entry);
+      var bound = TranspositionTable.bound(entry);
+      if ((bound == TranspositionTable.EXACT && (ply > 0 || game.isLegal(tableMove)))
+          || (ply > 0 && bound == TranspositionTable.LOWER && value >= beta)
+          || (ply > 0 && bound == TranspositionTable.UPPER && value <= alpha)) {
+        if (ply == 0)
+          rootMove = tableMove;
+        return value;
+      }
+    }
+    nodes++;
+    if (ply == moves.length)
+      grow();
+    var candidates = ordered[ply];
+    var count = order(game, moves[ply], candidates, tableMove);
+    var originalAlpha = alpha;
+    var bestValue = -INFINITY;
+    var bestMove = candidates[0];
+    for (var i = 0; i < count; i++) {
+      var move = candidates[i];
+      game.apply(move);
+      var next = game.isOver() ? player : game.currentPlayer().id();
+      var value = next == player ? search(game, ply + 1, alpha, beta, player)
+                                 : -search(game, ply + 1, -beta, -alpha, next);
+      game.undo();
+      if (value > bestValue) {
+        bestValue = value;
+        bestMove = move;
+      }
+      if (value > alpha)
+        alpha = value;
+      if (alpha >= beta)
+        break;
+    }
+    if (ply == 0)
+      rootMove = bestMove;
+    var bound = bestValue <= originalAlpha ? TranspositionTable.UPPER
+              : bestValue >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    table.store(hash, TranspositionTable.MAX_DEPTH, bestValue, bound, bestMove);
+    return bestValue;
+  }
+
+  /**
+   * Adds the buffers of one more ply
+   */
+  private void grow() {
+    var length = moves.length;
+    var buffers = new int[length + 1][];
+    var orderedBuffers = new int[length + 1][];
+    System.arraycopy(moves, 0, buffers, 0, length);
+    System.arraycopy(ordered, 0, orderedBuffers, 0, length);
+    buffers[length] = new int[allMoves ? Game.MAX_MOVES : PlayoutPolicy.MAX_CANDIDATES];
+    orderedBuffers[length] = new int[buffers[length].length];
+    moves = buffers;
+    ordered = orderedBuffers;
+  }
+
+  /**
+   * Fills the buffer with the moves of the position : the move of the transposition table first,
+   * then the moves of each choice (skip or one of the patches) by decreasing immediate value of the choice
+   * @param game the game
+   * @param generated buffer of the generated moves
+   * @param result buffer of the ordered moves
+   * @param tableMove move of the transposition table (-1 if none)
+   * @return the number of moves
+   */
+  private int order(Game game, int[] generated, int[] result, int tableMove) {
+    var count = allMoves ? game.legalMoves(generated) : policy.candidates(game, generated);
+    var size = 0;
+    for (var i = 0; i < count; i++) {
+      if (generated[i] == tableMove)
+        result[size++] = tableMove;
+    }
+    if (Move.kind(generated[0]) == Move.SPECIAL) {
+      for (var i = 0; i < count; i++) {
+        if (generated[i] != tableMove)
+          result[size++] = generated[i];
+      }
+      return size;
+    }
+    /* choice 0 is skip, choice i + 1 is the patch i, the moves of a choice are consecutive */
+    var player = game.currentPlayer();
+    for (var i = 0; i < 4; i++)
+      values[i] = Integer.MIN_VALUE;
+    for (var i = 0; i < count; i++)
+      values[choice(generated[i])] = PlayoutPolicy.immediateValue(game, player, generated[i]);
+    choices[0] = 0;
+    for (var i = 1; i < 4; i++) {
+      var j = i;
+      for (; j > 0 && values[choices[j - 1]] < values[i]; j--) /* insertion sort of the four choices */
+        choices[j] = choices[j - 1];
+      choices[j] = i;
+    }
+    for (var choice : choices) {
+      for (var i = 0; i < count; i++) {
+        if (choice(generated[i]) == choice && generated[i] != tableMove)
+          result[size++] = generated[i];
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the choice of a move
+   * @param move the encoded move (SKIP or BUY)
+   * @return 0 for skip, i + 1 to buy the patch i
+   */
+  private static int choice(int move) {
+    return Move.kind(move) == Move.SKIP ? 0 : Move.patchIndex(move) + 1;
+  }
+
+  /**
+   * Returns the difference between the score of a player and the score of his opponent
+   * @param game the game
+   * @param player id of the player
+   * @return the difference
+   */
+  private static int difference(Game game, int player) {
+    var self = player == 1 ? game.player1() : game.player2();
+    var opponent = player == 1 ? game.player2() : game.player1();
+    return self.score() - opponent.score();
+  }
+}
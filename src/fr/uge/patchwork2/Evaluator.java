@@ -0,0 +1,209 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Heuristic evaluation of a player in a position, as a weighted sum of features.
+ *
+ * The features are computed from the counters kept up to date by the game (buttons, empty squares, 7x7 squares)
+ * and from the two longs of the quilt board (see BitBoard) : an evaluation allocates nothing,
+ * so it can be used at every node of a search. The weights are in sixteenths of a point and the value in points,
+ * so that it can be compared with a score (Player.score).
+ * An evaluator is immutable and can be shared between threads.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class Evaluator {
+  /**
+   * Buttons of the player
+   */
+  public static final int BUTTONS = 0;
+  /**
+   * Buttons his quilt board will still earn : its buttons times the buttons of the time board in front of the player
+   */
+  public static final int INCOME = 1;
+  /**
+   * Empty squares of the quilt board
+   */
+  public static final int EMPTY = 2;
+  /**
+   * Empty squares of the quilt board without any empty neighbour : only a special patch can fill them
+   */
+  public static final int HOLES = 3;
+  /**
+   * Sides shared by an empty square and an occupied square : the more the empty space is fragmented, the more sides
+   */
+  public static final int EDGES = 4;
+  /**
+   * Squares of the most filled 7x7 square of the quilt board, 0 once the special tile is taken
+   */
+  public static final int SEVEN_BY_SEVEN = 5;
+  /**
+   * Special patches the player still has to place, or can pick up on the time board before his opponent moves
+   */
+  public static final int SPECIAL_PATCHES = 6;
+  /**
+   * Connected regions of empty squares of the quilt board (kept up to date by the quilt board)
+   */
+  public static final int REGIONS = 7;
+  /**
+   * Number of features
+   */
+  public static final int FEATURES = 8;
+  /**
+   * Weights of a point
+   */
+  private static final int SCALE = 16;
+  /**
+   * Last index of the time board
+   */
+  private static final int LAST = TimeBoard.getSIZE() - 1;
+  /**
+   * Number of squares of a 7x7 square
+   */
+  private static final int SEVEN_BY_SEVEN_SIZE = 7 * 7;
+
+  /**
+   * Score and income only : the value used by GreedyBot
+   */
+  public static final Evaluator GREEDY = new Evaluator(SCALE, SCALE, -2 * SCALE, 0, 0, 0, 0, 0);
+  /**
+   * Experimental weights : the value of GreedyBot, with a penalty for the fragmentation of the empty space (holes, edges and regions)
+   * and a bonus for the progress towards a 7x7 square and for the special patches.
+   * They have not beaten GREEDY in a search yet, which remains the evaluator of AlphaBetaBot.
+   */
+  public static final Evaluator FRAGMENTATION = new Evaluator(SCALE, SCALE, -2 * SCALE, -SCALE / 4, -1, 1, SCALE, -SCALE / 4);
+
+  private final int[] weights;
+
+  /**
+   * Constructor for Evaluator
+   * @param weights weight of each feature in sixteenths of a point (in the order of the feature indexes)
+   */
+  public Evaluator(int... weights) {
+    Objects.requireNonNull(weights);
+    if (weights.length != FEATURES)
+      throw new IllegalArgumentException("an evaluator needs " + FEATURES + " weights");
+    this.weights = weights.clone();
+  }
+
+  /**
+   * Returns the weight of a feature
+   * @param feature index of the feature
+   * @return the weight in sixteenths of a point
+   */
+  public int weight(int feature) {
+    Objects.checkIndex(feature, FEATURES);
+    return weights[feature];
+  }
+
+  /**
+   * Computes the value of a player
+   * @param game the game
+   * @param player the player
+   * @return the value in points
+   */
+  public int evaluate(Game game, Player player) {
+    Objects.requireNonNull(game);
+    Objects.requireNonNull(player);
+    var quiltboard = player.quiltboard();
+    var sum = weights[BUTTONS] * player.button()
+            + weights[INCOME] * income(game, player)
+            + weights[EMPTY] * quiltboard.emptySquare()
+            + weights[REGIONS] * quiltboard.emptyRegions();
+    /* the other features are only computed when they are used */
+    if (weights[HOLES] != 0 || weights[EDGES] != 0) {
+      var emptyLow = ~quiltboard.low();
+      var emptyHigh = ~quiltboard.high() & BitBoard.HIGH_MASK;
+      sum += weights[HOLES] * BitBoard.isolated(emptyLow, emptyHigh) + weights[EDGES] * BitBoard.sides(emptyLow, emptyHigh);
+    }
+    if (weights[SEVEN_BY_SEVEN] != 0)
+      sum += weights[SEVEN_BY_SEVEN] * sevenBySeven(game, player);
+    if (weights[SPECIAL_PATCHES] != 0)
+      sum += weights[SPECIAL_PATCHES] * specialPatches(game, player);
+    return Math.floorDiv(sum, SCALE);
+  }
+
+  /**
+   * Computes the value of a player minus the value of his opponent
+   * @param game the game
+   * @param player the player
+   * @return the difference in points
+   */
+  public int difference(Game game, Player player) {
+    Objects.requireNonNull(game);
+    var opponent = player == game.player1() ? game.player2() : game.player1();
+    return evaluate(game, player) - evaluate(game, opponent);
+  }
+
+  /**
+   * Fills an array with the features of a player
+   * @param game the game
+   * @param player the player
+   * @param features array of length FEATURES at least
+   */
+  public static void features(Game game, Player player, int[] features) {
+    Objects.requireNonNull(game);
+    Objects.requireNonNull(player);
+    Objects.requireNonNull(features);
+    if (features.length < FEATURES)
+      throw new IllegalArgumentException("features array too small");
+    var quiltboard = player.quiltboard();
+    var emptyLow = ~quiltboard.low();
+    var emptyHigh = ~quiltboard.high() & BitBoard.HIGH_MASK;
+    features[BUTTONS] = player.button();
+    features[INCOME] = income(game, player);
+    features[EMPTY] = quiltboard.emptySquare();
+    features[HOLES] = BitBoard.isolated(emptyLow, emptyHigh);
+    features[EDGES] = BitBoard.sides(emptyLow, emptyHigh);
+    features[SEVEN_BY_SEVEN] = sevenBySeven(game, player);
+    features[SPECIAL_PATCHES] = specialPatches(game, player);
+    features[REGIONS] = quiltboard.emptyRegions();
+  }
+
+  @Override
+  public String toString() {
+    return "Evaluator " + Arrays.toString(weights);
+  }
+
+  /**
+   * Computes the buttons the quilt board of a player will still earn
+   * @param game the game
+   * @param player the player
+   * @return the number of buttons
+   */
+  private static int income(Game game, Player player) {
+    if (player.location() >= LAST)
+      return 0;
+    return game.timeboard().buttonsCrossed(player.location(), LAST) * player.quiltboard().buttons();
+  }
+
+  /**
+   * Counts the squares of the most filled 7x7 square while the special tile can still be taken
+   * @param game the game
+   * @param player the player
+   * @return the number of occupied squares, 0 if the special tile is taken
+   */
+  private static int sevenBySeven(Game game, Player player) {
+    if (game.specialTileTaken())
+      return 0;
+    return SEVEN_BY_SEVEN_SIZE - player.quiltboard().sevenBySevenMinMissing();
+  }
+
+  /**
+   * Counts the special patches the player has to place, or can pick up by skipping before his opponent moves
+   * (the ones between his time token and the square in front of the time token of his opponent)
+   * @param game the game
+   * @param player the player
+   * @return the number of special patches
+   */
+  private static int specialPatches(Game game, Player player) {
+    var opponent = player == game.player1() ? game.player2() : game.player1();
+    var pending = game.pendingSpecialPatches() > 0 && game.currentPlayer() == player ? game.pendingSpecialPatches() : 0;
+    if (player.location() >= opponent.location())
+      return pending;
+    var last = Math.min(opponent.location() + 1, LAST);
+    return pending + game.timeboard().specialPatchesCrossed(player.location(), last);
+  }
+}
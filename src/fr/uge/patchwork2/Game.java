@@ -0,0 +1,477 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Represents the whole state of a game (patch circle, time board, players) and the rules to make it evolve.
+ *
+ * Moves (see Move) are applied with apply and can be reverted with undo, which restores the exact prior state
+ * of every object of the game. This allows search algorithms to explore positions without copying the game.
+ *
+ * When a player picks up special patches on the time board, he has to place them before the turn ends :
+ * the same player stays the current player and his only legal moves are SPECIAL moves.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class Game {
+  /**
+   * Maximum number of legal moves in a position (skip + 3 patches with 8 orientations and 81 anchors)
+   */
+  public static final int MAX_MOVES = 1 + 3 * 8 * BitBoard.SQUARES;
+  /**
+   * Number of longs stored in the history for each move
+   */
+  private static final int HISTORY_STRIDE = 4;
+  /**
+   * Special patch placed by the players, patches are immutable so a single instance is shared
+   */
+  private static final Patch SPECIAL_PATCH = Patch.specialPatch();
+
+  private final PatchCircle patchcircle;
+  private final TimeBoard timeboard;
+  private final Player player1;
+  private final Player player2;
+  private final int type;
+  private boolean tokenOneOnTwo;
+  private boolean specialTileTaken;
+  /**
+   * Number of special patches the current player still has to place
+   */
+  private int pendingSpecialPatches;
+  /**
+   * id of the player who made the last move (0 if no move has been made)
+   */
+  private int lastMover;
+  /**
+   * State saved before each move, HISTORY_STRIDE longs per move
+   */
+  private long[] history;
+  private int historySize;
+  /**
+   * Buffer used to compute the legal placements of a patch
+   */
+  private final long[] anchors;
+
+  /**
+   * Initializes a new game, the patch circle and the time board depend on the type
+   * @param type type of the game (basic = 0 or full = 1)
+   */
+  public Game(int type) {
+    this(type, new Random());
+  }
+
+  /**
+   * Initializes a new game, the patch circle and the time board depend on the type
+   * @param type type of the game (basic = 0 or full = 1)
+   * @param random random generator used to shuffle the patch circle (a seeded one gives a reproducible game)
+   */
+  public Game(int type, Random random) {
+    this(type == 0 ? PatchCircle.newPatchCircleBasic(random) : PatchCircle.newPatchCircleFull(random),
+         type == 0 ? TimeBoard.newBasicTimeBoard() : TimeBoard.newFullTimeBoard(),
+         Player.newPlayer(1), Player.newPlayer(2), type);
+  }
+
+  /**
+   * Initializes a game from existing objects
+   * @param patchcircle the patch circle
+   * @param timeboard the time board
+   * @param player1 the player 1
+   * @param player2 the player 2
+   * @param type type of the game (basic = 0 or full = 1)
+   */
+  public Game(PatchCircle patchcircle, TimeBoard timeboard, Player player1, Player player2, int type) {
+    if (type > 1 || type < 0)
+      throw new IllegalArgumentException("game type invalid");
+    this.patchcircle = Objects.requireNonNull(patchcircle);
+    this.timeboard = Objects.requireNonNull(timeboard);
+    this.player1 = Objects.requireNonNull(player1);
+    this.player2 = Objects.requireNonNull(player2);
+    if (player1.id() != 1 || player2.id() != 2)
+      throw new IllegalArgumentException("Players ids must be 1 and 2");
+    this.type = type;
+    tokenOneOnTwo = true;
+    specialTileTaken = player1.specialTile() || player2.specialTile();
+    history = new long[HISTORY_STRIDE * 64];
+    anchors = new long[16];
+  }
+
+  /**
+   * getter for the patchcircle field
+   * @return the patch circle
+   */
+  public PatchCircle patchcircle() {
+    return patchcircle;
+  }
+
+  /**
+   * getter for the timeboard field
+   * @return the time board
+   */
+  public TimeBoard timeboard() {
+    return timeboard;
+  }
+
+  /**
+   * getter for the player1 field
+   * @return the player 1
+   */
+  public Player player1() {
+    return player1;
+  }
+
+  /**
+   * getter for the player2 field
+   * @return the player 2
+   */
+  public Player player2() {
+    return player2;
+  }
+
+  /**
+   * getter for the type field
+   * @return type of the game (basic = 0 or full = 1)
+   */
+  public int type() {
+    return type;
+  }
+
+  /**
+   * getter for the tokenOneOnTwo field
+   * @return true if the time token of player 1 is on the time token of player 2
+   */
+  public boolean tokenOneOnTwo() {
+    return tokenOneOnTwo;
+  }
+
+  /**
+   * getter for the specialTileTaken field
+   * @return true if a player has already obtained the special tile
+   */
+  public boolean specialTileTaken() {
+    return specialTileTaken;
+  }
+
+  /**
+   * getter for the pendingSpecialPatches field
+   * @return number of special patches the current player still has to place
+   */
+  public int pendingSpecialPatches() {
+    return pendingSpecialPatches;
+  }
+
+  /**
+   * Returns the 64-bit Zobrist hash of the position (quilt boards, players, patch circle, time board,
+   * special tile and turn order). Every object of the game keeps its own hash up to date when it is modified,
+   * so this is a constant time operation usable as the key of a transposition table.
+   * @return the hash
+   */
+  public long hash() {
+    return player1.hash() ^ player2.hash() * Zobrist.PLAYER_TWO
+         ^ patchcircle.hash() ^ timeboard.hash()
+         ^ (tokenOneOnTwo ? Zobrist.TOKEN_ONE_ON_TWO : 0)
+         ^ Zobrist.pending(pendingSpecialPatches, lastMover);
+  }
+
+  /**
+   * Returns the number of moves that can be reverted with undo
+   * @return the number of applied moves
+   */
+  public int movesPlayed() {
+    return historySize / HISTORY_STRIDE;
+  }
+
+  /**
+   * Returns the player who has to play (the player who still has special patches to place,
+   * or else the player whose time token is behind)
+   * @return the current player
+   */
+  public Player currentPlayer() {
+    if (pendingSpecialPatches > 0)
+      return lastMover == 1 ? player1 : player2;
+    return player1.playerTurn(player2, tokenOneOnTwo) ? player1 : player2;
+  }
+
+  /**
+   * Returns the opponent of the current player
+   * @return the current opponent
+   */
+  public Player currentOpponent() {
+    return currentPlayer() == player1 ? player2 : player1;
+  }
+
+  /**
+   * Checks if the game is over (both players have finished and no special patch remains to be placed)
+   * @return true if the game is over, otherwise false
+   */
+  public boolean isOver() {
+    return player1.finished() && player2.finished() && pendingSpecialPatches == 0;
+  }
+
+  /**
+   * Checks if the given move can be applied to the current state of the game
+   * @param move the move
+   * @return true if the move is legal, otherwise false
+   */
+  public boolean isLegal(Move move) {
+    Objects.requireNonNull(move);
+    return isLegal(move.encode());
+  }
+
+  /**
+   * Checks if the given encoded move can be applied to the current state of the game
+   * @param move the encoded move (see Move.encode)
+   * @return true if the move is legal, otherwise false
+   */
+  public boolean isLegal(int move) {
+    if (isOver())
+      return false;
+    var player = currentPlayer();
+    var kind = Move.kind(move);
+    var anchor = Move.anchor(move);
+    if (kind == Move.SPECIAL)
+      return pendingSpecialPatches > 0 && move == Move.encode(Move.SPECIAL, 0, 0, anchor) && anchor < BitBoard.SQUARES
+          && !player.quiltboard().isOccupied(anchor % BitBoard.WIDTH, anchor / BitBoard.WIDTH);
+    if (pendingSpecialPatches > 0)
+      return false;
+    if (kind == Move.SKIP)
+      return move == 0;
+    if (kind != Move.BUY || anchor >= BitBoard.SQUARES)
+      return false;
+    var patchIndex = Move.patchIndex(move);
+    var orientation = Move.orientation(move);
+    if (patchIndex >= patchcircle.size())
+      return false;
+    var patch = patchcircle.get(patchIndex);
+    if (patch.price() > player.button() || orientation >= patch.orientationCount())
+      return false;
+    return player.quiltboard().canPlacePatch(patch.orientation(orientation),
+                                             anchor % BitBoard.WIDTH, anchor / BitBoard.WIDTH);
+  }
+
+  /**
+   * Fills the given array with every legal move (encoded, see Move.encode) of the current player
+   * @param moves array of length MAX_MOVES at least
+   * @return the number of legal moves
+   */
+  public int legalMoves(int[] moves) {
+    Objects.requireNonNull(moves);
+    if (moves.length < MAX_MOVES)
+      throw new IllegalArgumentException("moves array too small");
+    if (isOver())
+      return 0;
+    var quiltboard = currentPlayer().quiltboard();
+    var count = 0;
+    if (pendingSpecialPatches > 0) {
+      for (var anchor = 0; anchor < BitBoard.SQUARES; anchor++) {
+        if (!BitBoard.isSet(quiltboard.low(), quiltboard.high(), anchor))
+          moves[count++] = Move.encode(Move.SPECIAL, 0, 0, anchor);
+      }
+      return count;
+    }
+    moves[count++] = Move.encode(Move.SKIP, 0, 0, 0);
+    var button = currentPlayer().button();
+    for (var i = 0; i < 3 && i < patchcircle.size(); i++) {
+      var patch = patchcircle.get(i);
+      if (patch.price() > button || quiltboard.legalPlacements(patch, anchors) == 0)
+        continue;
+      for (var o = 0; o < patch.orientationCount(); o++) {
+        for (var bits = anchors[2 * o]; bits != 0; bits &= bits - 1)
+          moves[count++] = Move.encode(Move.BUY, i, o, Long.numberOfTrailingZeros(bits));
+        for (var bits = anchors[2 * o + 1]; bits != 0; bits &= bits - 1)
+          moves[count++] = Move.encode(Move.BUY, i, o, Long.SIZE + Long.numberOfTrailingZeros(bits));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Applies a move of the current player
+   * @param move the move
+   */
+  public void apply(Move move) {
+    Objects.requireNonNull(move);
+    apply(move.encode());
+  }
+
+  /**
+   * Applies an encoded move of the current player
+   * @param move the encoded move (see Move.encode)
+   */
+  public void apply(int move) {
+    if (!isLegal(move))
+      throw new IllegalArgumentException("Illegal move");
+    var player = currentPlayer();
+    var opponent = currentOpponent();
+    saveState(player, Move.kind(move));
+
+    var kind = Move.kind(move);
+    if (kind == Move.SKIP)
+      skip(player, opponent);
+    else if (kind == Move.BUY)
+      buy(player, opponent, move);
+    else
+      placeSpecialPatch(player, Move.anchor(move));
+
+    lastMover = player.id();
+    if (pendingSpecialPatches == 0)
+      specialTileProcedure(player);
+  }
+
+  /**
+   * Processes the current player refraining from buying a patch :
+   * the player moves in front of the opponent and earns one button per crossed tile
+   * @param player the current player
+   * @param opponent the opponent
+   */
+  private void skip(Player player, Player opponent) {
+    var tilesCrossed = player.getTileCrossedSelectionSkip(opponent);
+    timeboardCrossing(player, player.location() + tilesCrossed);
+    player.skipSelectionUpdateLocation(opponent);
+    player.updateButton(player.button() + tilesCrossed);
+    tokenOneOnTwo = false;
+  }
+
+  /**
+   * Processes the current player buying a patch : the patch is placed and paid, then the player moves
+   * @param player the current player
+   * @param opponent the opponent
+   * @param move the encoded BUY move
+   */
+  private void buy(Player player, Player opponent, int move) {
+    var patch = patchcircle.choosePatch(Move.patchIndex(move)).orientation(Move.orientation(move));
+    var anchor = Move.anchor(move);
+    player.quiltboard().placePatch(patch, anchor % BitBoard.WIDTH, anchor / BitBoard.WIDTH);
+    player.updateButton(player.button() - patch.price());
+    if (patch.time() > 0)
+      timeboardCrossing(player, player.getDestinationIndex(patch.time()));
+    player.movePlayer(patch);
+    tokenOneOnTwo = player.id() == 1 && opponent.location() == player.location();
+  }
+
+  /**
+   * Processes the current player placing one of the special patches he picked up
+   * @param player the current player
+   * @param anchor index of the square where the special patch is placed
+   */
+  private void placeSpecialPatch(Player player, int anchor) {
+    player.quiltboard().placePatch(SPECIAL_PATCH, anchor % BitBoard.WIDTH, anchor / BitBoard.WIDTH);
+    player.takeSpecialPatch();
+    pendingSpecialPatches--;
+  }
+
+  /**
+   * Processes the elements of the time board crossed by the player before he moves :
+   * each button earns the buttons of his quilt board and each special patch has to be placed
+   * @param player the current player
+   * @param finishIndex index where the player will be after moving
+   */
+  private void timeboardCrossing(Player player, int finishIndex) {
+    finishIndex = Math.min(finishIndex, TimeBoard.getSIZE() - 1);
+    if (finishIndex <= player.location())
+      return;
+    var buttons = timeboard.buttonsCrossed(player.location(), finishIndex);
+    player.updateButton(player.button() + buttons * player.quiltboard().buttons());
+    var specialPatches = timeboard.takeSpecialPatches(player.location(), finishIndex);
+    /* a special patch that cannot be placed anywhere is lost */
+    pendingSpecialPatches = Math.min(specialPatches, player.quiltboard().emptySquare());
+  }
+
+  /**
+   * Gives the special tile to the player if he is the first one to have a 7x7 square on his quilt board
+   * @param player the player who has just finished his turn
+   */
+  private void specialTileProcedure(Player player) {
+    if (!specialTileTaken && player.quiltboard().hasSevenBySevenSquare()) {
+      player.takeSpecialTile();
+      specialTileTaken = true;
+    }
+  }
+
+  /**
+   * Saves in the history everything a move of the given player can modify
+   * @param player the current player
+   * @param kind kind of the move
+   */
+  private void saveState(Player player, int kind) {
+    if (historySize + HISTORY_STRIDE > history.length)
+      history = Arrays.copyOf(history, history.length * 2);
+    history[historySize] = (player.button() & 0xFFFFFFFFL)
+                         | (long) player.location() << 32
+                         | (long) player.specialPatches() << 40
+                         | (player.finished() ? 1L << 48 : 0)
+                         | (player.specialTile() ? 1L << 49 : 0)
+                         | (long) (player.id() - 1) << 50
+                         | (long) kind << 51;
+    history[historySize + 1] = patchcircle.remaining();
+    history[historySize + 2] = patchcircle.cursor()
+                             | (tokenOneOnTwo ? 1L << 8 : 0)
+                             | (specialTileTaken ? 1L << 9 : 0)
+                             | (long) pendingSpecialPatches << 10
+                             | (long) lastMover << 18;
+    history[historySize + 3] = timeboard.specialPatches();
+    historySize += HISTORY_STRIDE;
+  }
+
+  /**
+   * Puts the game in the state described by the snapshot, the history of moves is cleared.
+   * The snapshot must come from a game built on the same patch circle (see GameState).
+   * @param state the snapshot
+   */
+  public void restore(GameState state) {
+    Objects.requireNonNull(state);
+    player1.quiltboard().restore(state.quilt1Low(), state.quilt1High(), state.income(1));
+    player2.quiltboard().restore(state.quilt2Low(), state.quilt2High(), state.income(2));
+    player1.restore(state.button(1), state.location(1), state.finished(1), state.bonusOwner() == 1,
+                    state.specialPatches(1));
+    player2.restore(state.button(2), state.location(2), state.finished(2), state.bonusOwner() == 2,
+                    state.specialPatches(2));
+    patchcircle.restore(state.circle(), state.cursor());
+    timeboard.restoreSpecialPatches(state.timeboard());
+    tokenOneOnTwo = state.tokenOneOnTwo();
+    specialTileTaken = state.bonusOwner() != 0;
+    pendingSpecialPatches = state.pendingSpecialPatches();
+    lastMover = state.pendingPlayer();
+    historySize = 0;
+  }
+
+  /**
+   * Creates an independent copy of the game in its current state, sharing only the immutable patches.
+   * The copy has no history of moves and its quilt boards have no list of placed patches.
+   * @return the copy
+   */
+  public Game copy() {
+    var game = new Game(patchcircle.copy(), new TimeBoard(), Player.newPlayer(1), Player.newPlayer(2), type);
+    game.restore(GameState.of(this));
+    return game;
+  }
+
+  /**
+   * Reverts the last applied move, the game is restored in the exact state it had before that move
+   */
+  public void undo() {
+    if (historySize == 0)
+      throw new IllegalStateException("No move to undo");
+    historySize -= HISTORY_STRIDE;
+    var playerState = history[historySize];
+    var circleRemaining = history[historySize + 1];
+    var gameState = history[historySize + 2];
+    var specialPatches = history[historySize + 3];
+
+    var player = ((playerState >>> 50) & 1) == 0 ? player1 : player2;
+    if ((int) (playerState >>> 51) != Move.SKIP)
+      player.quiltboard().removeLastPatch();
+    player.restore((int) playerState,
+                   (int) (playerState >>> 32) & 0xFF,
+                   ((playerState >>> 48) & 1) != 0,
+                   ((playerState >>> 49) & 1) != 0,
+                   (int) (playerState >>> 40) & 0xFF);
+    patchcircle.restore(circleRemaining, (int) gameState & 0xFF);
+    timeboard.restoreSpecialPatches(specialPatches);
+    tokenOneOnTwo = ((gameState >>> 8) & 1) != 0;
+    specialTileTaken = ((gameState >>> 9) & 1) != 0;
+    pendingSpecialPatches = (int) (gameState >>> 10) & 0xFF;
+    lastMover = (int) (gameState >>> 18) & 0b11;
+  }
+}
@@ -0,0 +1,110 @@
+package fr.uge.patchwork2;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * Plays a game by asking the decider of the current player for a move and applying it, until the game is over.
+ *
+ * The engine does not read any input nor print anything : the front ends are a Decider (to choose the moves)
+ * and a GameListener (to display what happens). Without listeners, a game runs at machine speed.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class GameEngine {
+  private final Game game;
+  private final Decider decider1;
+  private final Decider decider2;
+  private final ArrayList<GameListener> listeners;
+
+  /**
+   * Creates an engine for the given game
+   * @param game the game
+   * @param decider1 decider of the player 1
+   * @param decider2 decider of the player 2
+   */
+  public GameEngine(Game game, Decider decider1, Decider decider2) {
+    this.game = Objects.requireNonNull(game);
+    this.decider1 = Objects.requireNonNull(decider1);
+    this.decider2 = Objects.requireNonNull(decider2);
+    listeners = new ArrayList<GameListener>();
+  }
+
+  /**
+   * getter for the game field
+   * @return the game
+   */
+  public Game game() {
+    return game;
+  }
+
+  /**
+   * Adds a listener that will receive the events of the game
+   * @param listener the listener
+   */
+  public void addListener(GameListener listener) {
+    listeners.add(Objects.requireNonNull(listener));
+  }
+
+  /**
+   * Plays the whole game
+   */
+  public void play() {
+    for (var listener : listeners)
+      listener.gameStarted(game);
+    while (step()) {
+      /* nothing more to do between two moves */
+    }
+    for (var listener : listeners)
+      listener.gameEnded(game);
+  }
+
+  /**
+   * Plays one move of the current player
+   * @return true if a move has been played, false if the game is already over
+   */
+  public boolean step() {
+    if (game.isOver())
+      return false;
+    var player = game.currentPlayer();
+    if (game.pendingSpecialPatches() == 0) {
+      for (var listener : listeners)
+        listener.turnStarted(game, player);
+    }
+    var move = (player.id() == 1 ? decider1 : decider2).decide(game);
+    if (!game.isLegal(move))
+      throw new IllegalStateException("The decider of player " + player.id() + " chose an illegal move");
+
+    var location = player.location();
+    var specialTile = player.specialTile();
+    game.apply(move);
+    if (!listeners.isEmpty())
+      notifyMove(player, move, location, specialTile);
+    return true;
+  }
+
+  /**
+   * Sends the events of a move that has just been applied
+   * @param player the player who made the move
+   * @param move the encoded move
+   * @param location location of the player before the move
+   * @param specialTile true if the player had the special tile before the move
+   */
+  private void notifyMove(Player player, int move, int location, boolean specialTile) {
+    var distance = player.location() - location;
+    var earned = distance > 0
+        ? game.timeboard().buttonsCrossed(location, player.location()) * player.quiltboard().buttons() : 0;
+    var picked = Move.kind(move) != Move.SPECIAL ? game.pendingSpecialPatches() : 0;
+    for (var listener : listeners) {
+      listener.moveApplied(game, player, move, distance);
+      if (earned > 0)
+        listener.buttonsEarned(game, player, earned);
+      if (picked > 0)
+        listener.specialPatchesPicked(game, player, picked);
+      if (!specialTile && player.specialTile())
+        listener.specialTileTaken(game, player);
+      if (game.pendingSpecialPatches() == 0)
+        listener.turnEnded(game, player);
+    }
+  }
+}
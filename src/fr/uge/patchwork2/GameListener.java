@@ -0,0 +1,79 @@
+package fr.uge.patchwork2;
+
+/**
+ * Receives the events of a game played by a GameEngine, used by the front ends to display the game.
+ *
+ * Every method does nothing by default, a listener only overrides the events it is interested in.
+ * For a move, the events are sent in this order : moveApplied, buttonsEarned, specialPatchesPicked,
+ * specialTileTaken and finally turnEnded when the player has no special patch left to place.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public interface GameListener {
+  /**
+   * Called once before the first turn
+   * @param game the game
+   */
+  default void gameStarted(Game game) {
+  }
+
+  /**
+   * Called at the start of the turn of a player, before his decider is asked for a move
+   * @param game the game
+   * @param player the player who has to play
+   */
+  default void turnStarted(Game game, Player player) {
+  }
+
+  /**
+   * Called after a move has been applied to the game
+   * @param game the game
+   * @param player the player who made the move
+   * @param move the move, encoded (see Move.encode)
+   * @param distance number of tiles the time token of the player has moved
+   */
+  default void moveApplied(Game game, Player player, int move, int distance) {
+  }
+
+  /**
+   * Called when a player has crossed buttons on the time board during his move
+   * @param game the game
+   * @param player the player
+   * @param buttons the number of buttons earned (buttons crossed times the buttons of his quilt board)
+   */
+  default void buttonsEarned(Game game, Player player, int buttons) {
+  }
+
+  /**
+   * Called when a player has picked up special patches on the time board during his move,
+   * his next moves are the placement of these patches
+   * @param game the game
+   * @param player the player
+   * @param count the number of special patches he has to place
+   */
+  default void specialPatchesPicked(Game game, Player player, int count) {
+  }
+
+  /**
+   * Called when a player obtains the special tile (first 7x7 square)
+   * @param game the game
+   * @param player the player
+   */
+  default void specialTileTaken(Game game, Player player) {
+  }
+
+  /**
+   * Called at the end of the turn of a player
+   * @param game the game
+   * @param player the player who has played
+   */
+  default void turnEnded(Game game, Player player) {
+  }
+
+  /**
+   * Called once when the game is over
+   * @param game the game
+   */
+  default void gameEnded(Game game) {
+  }
+}
@@ -0,0 +1,166 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the state of a game, packed into a few primitive values (60 bytes).
+ *
+ * Snapshots can be compared and hashed (value equality), which makes them usable as keys of caches.
+ * A snapshot is obtained from a game with GameState.of and restored into a game with Game.restore.
+ *
+ * The order of the patch circle is decided when the game is created and never changes afterwards,
+ * so the snapshot only keeps which patches are still in the circle and where the neutral token is :
+ * it must be restored into a game built on the same patch circle.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ * @param quilt1Low occupied squares 0 to 63 of the quilt board of player 1 (see BitBoard)
+ * @param quilt1High occupied squares 64 to 80 of the quilt board of player 1
+ * @param quilt2Low occupied squares 0 to 63 of the quilt board of player 2
+ * @param quilt2High occupied squares 64 to 80 of the quilt board of player 2
+ * @param players buttons, location, quilt board buttons and special patches of both players (28 bits each)
+ * @param circle bitmask of the patches still in the patch circle (see PatchCircle.remaining)
+ * @param timeboard bitmask of the special patches still on the time board (see TimeBoard.specialPatches)
+ * @param flags neutral token, token order, bonus owner, pending special patches, last mover and finished players
+ */
+public record GameState(long quilt1Low, long quilt1High, long quilt2Low, long quilt2High,
+                        long players, long circle, long timeboard, int flags) {
+  private static final int PLAYER_BITS = 28;
+  private static final int MAX_BUTTON = (1 << 12) - 1;
+
+  /**
+   * Creates the snapshot of the current state of a game
+   * @param game the game
+   * @return the snapshot
+   */
+  public static GameState of(Game game) {
+    Objects.requireNonNull(game);
+    var player1 = game.player1();
+    var player2 = game.player2();
+    var bonusOwner = player1.specialTile() ? 1 : player2.specialTile() ? 2 : 0;
+    var lastMover = game.currentPlayer().id();
+    var flags = game.patchcircle().cursor()
+              | (game.tokenOneOnTwo() ? 1 << 6 : 0)
+              | bonusOwner << 7
+              | game.pendingSpecialPatches() << 9
+              | (game.pendingSpecialPatches() > 0 ? lastMover : 0) << 12
+              | (player1.finished() ? 1 << 14 : 0)
+              | (player2.finished() ? 1 << 15 : 0);
+    return new GameState(player1.quiltboard().low(), player1.quiltboard().high(),
+                         player2.quiltboard().low(), player2.quiltboard().high(),
+                         packPlayer(player1) | packPlayer(player2) << PLAYER_BITS,
+                         game.patchcircle().remaining(),
+                         game.timeboard().specialPatches(),
+                         flags);
+  }
+
+  /**
+   * Packs the scalar fields of a player into 28 bits
+   * @param player the player
+   * @return the packed fields
+   */
+  private static long packPlayer(Player player) {
+    if (player.button() > MAX_BUTTON)
+      throw new IllegalStateException("too many buttons to be stored in a snapshot");
+    return player.button()
+         | (long) player.location() << 12
+         | (long) player.quiltboard().buttons() << 18
+         | (long) player.specialPatches() << 25;
+  }
+
+  /**
+   * Returns the packed scalar fields of a player
+   * @param id id of the player (1 or 2)
+   * @return the packed fields
+   */
+  private long player(int id) {
+    if (id != 1 && id != 2)
+      throw new IllegalArgumentException("Unknown player id");
+    return players >>> (id - 1) * PLAYER_BITS;
+  }
+
+  /**
+   * Returns the buttons held by a player
+   * @param id id of the player (1 or 2)
+   * @return the buttons
+   */
+  public int button(int id) {
+    return (int) player(id) & MAX_BUTTON;
+  }
+
+  /**
+   * Returns the location of a player on the time board
+   * @param id id of the player (1 or 2)
+   * @return the location
+   */
+  public int location(int id) {
+    return (int) (player(id) >>> 12) & 0b111111;
+  }
+
+  /**
+   * Returns the buttons on the quilt board of a player
+   * @param id id of the player (1 or 2)
+   * @return the buttons on the quilt board
+   */
+  public int income(int id) {
+    return (int) (player(id) >>> 18) & 0b1111111;
+  }
+
+  /**
+   * Returns the number of special patches picked up by a player
+   * @param id id of the player (1 or 2)
+   * @return the number of special patches
+   */
+  public int specialPatches(int id) {
+    return (int) (player(id) >>> 25) & 0b111;
+  }
+
+  /**
+   * Checks if a player has finished
+   * @param id id of the player (1 or 2)
+   * @return true if the player has finished, otherwise false
+   */
+  public boolean finished(int id) {
+    if (id != 1 && id != 2)
+      throw new IllegalArgumentException("Unknown player id");
+    return (flags & (1 << (13 + id))) != 0;
+  }
+
+  /**
+   * Returns the index (in the original order of the circle) of the first patch in front of the neutral token
+   * @return the aforementioned index
+   */
+  public int cursor() {
+    return flags & 0b111111;
+  }
+
+  /**
+   * Returns true if the time token of player 1 is on the time token of player 2
+   * @return the aforementioned boolean
+   */
+  public boolean tokenOneOnTwo() {
+    return (flags & (1 << 6)) != 0;
+  }
+
+  /**
+   * Returns the id of the player who obtained the special tile (the 7x7 bonus)
+   * @return the id of the player, 0 if nobody has it yet
+   */
+  public int bonusOwner() {
+    return (flags >>> 7) & 0b11;
+  }
+
+  /**
+   * Returns the number of special patches the current player still has to place
+   * @return the aforementioned number
+   */
+  public int pendingSpecialPatches() {
+    return (flags >>> 9) & 0b111;
+  }
+
+  /**
+   * Returns the id of the player who has to place the pending special patches
+   * @return the id of the player, 0 if there is no pending special patch
+   */
+  public int pendingPlayer() {
+    return (flags >>> 12) & 0b11;
+  }
+}
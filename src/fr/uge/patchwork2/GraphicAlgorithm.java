@@ -1,6 +1,5 @@
 package fr.uge.patchwork2;
 
-import java.awt.Point;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,12 +9,13 @@ import fr.umlv.zen5.ApplicationContext;
 
 /**
  * From an ApplicationContext, stores informations about the overall size and proportions of graphical elements and some elements themselves.
- * Basically represents the IO of the graphic mode with some game data processing algorithms
+ * Basically represents the IO of the graphic mode : for a GameEngine it is both the Decider of the players
+ * (the moves are chosen with clicks) and a GameListener (the events of the game are drawn).
  * Only one instance of this class must be used for a game.
  * @author Hervé Nguyen and Gabriel Radoniaina
  *
  */
-public class GraphicAlgorithm {
+public class GraphicAlgorithm implements Decider, GameListener {
   /*  */
   private final ApplicationContext context;
   private final double width;
@@ -43,22 +43,24 @@ public class GraphicAlgorithm {
   private final PatchCircle patchcircle;
   private final TimeBoard timeboard;
   private Player player;
-  private Player opponent;
+  /**
+   * Buffer used to check if a patch can be placed somewhere on a quiltboard
+   */
+  private final long[] anchors;
 
   /**
    * Constructor of the GraphicsAlgorithm class, loads data to run the game.
    * @param context ApplicationContext
-   * @param player1 the player 1
-   * @param player2 the player 2
-   * @param patchcircle the patchcircle for the game
-   * @param timeboard the timeboard
+   * @param game the game that will be played
    */
-  public GraphicAlgorithm(ApplicationContext context, Player player1, Player player2, PatchCircle patchcircle, TimeBoard timeboard) {
+  public GraphicAlgorithm(ApplicationContext context, Game game) {
     this.context = Objects.requireNonNull(context);
-    this.player1 = Objects.requireNonNull(player1); player = player1;
-    this.player2 = Objects.requireNonNull(player2); opponent = player2;
-    this.patchcircle = Objects.requireNonNull(patchcircle);
-    this.timeboard = Objects.requireNonNull(timeboard);
+    Objects.requireNonNull(game);
+    player1 = game.player1(); player = player1;
+    player2 = game.player2();
+    patchcircle = game.patchcircle();
+    timeboard = game.timeboard();
+    anchors = new long[16];
     if (context.getScreenInfo().getHeight() <= 0 || context.getScreenInfo().getWidth() <= 0)
       throw new IllegalArgumentException("ApplicationContext have unusable characteristics");
     height = context.getScreenInfo().getHeight();
@@ -83,31 +85,36 @@ public class GraphicAlgorithm {
     acceptButton = new GraphicButton(context, "Accept", width * 0.66 - 5 * buttonSize, height * 0.7 - buttonSize, buttonSize, buttonSize);
   }
   
-  /**
-   * Do all necessary actions that happens during one turn for a player.
-   * 
-   * @param newPlayer Current player who is playing
-   * @param newOpponent Opponent
-   * @param tokenOneOnTwo Boolean that specifies if the player 1's token is placed ON the player 2's
-   * @return tokenOneOnTwo for the next turn
-   */
-  public boolean action(Player newPlayer, Player newOpponent, boolean tokenOneOnTwo) {
-    this.player = Objects.requireNonNull(newPlayer);
-    this.opponent = Objects.requireNonNull(newOpponent);
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    player = game.currentPlayer();
+    if (game.pendingSpecialPatches() > 0) {
+      GraphicElements.clearMainScreen(context);
+      var placed = patchPlacementProcedure(Patch.specialPatch(), player.quiltboard());
+      return Move.encode(Move.SPECIAL, 0, 0, placed.anchor());
+    }
     GraphicElements.clearAll(context);
-    var chosenPatch = patchSelectionAlgorithm(player, opponent, patchcircle);
+    var chosenPatch = patchSelectionAlgorithm(player, patchcircle);
     GraphicElements.clearAll(context);
-    if (chosenPatch.isEmpty()) {
-      skipSelectionProcedure();
-    }
-    else {
-      chosenPatchPlacementProccessing(chosenPatch.get());
-      GraphicElements.clearAll(context);
-      if (player.id() == 1 && opponent.location() == player.location())
-        return true;
-    }
+    if (chosenPatch.isEmpty())
+      return Move.encode(Move.SKIP, 0, 0, 0);
+    var placed = patchPlacementProcedure(chosenPatch.get(), player.quiltboard());
     GraphicElements.clearAll(context);
-    return false;
+    return Move.encode(Move.BUY, patchIndex(chosenPatch.get()), placed.patch().orientation(), placed.anchor());
+  }
+  
+  /**
+   * Returns the index of the given patch among the first three patches in front of the neutral token
+   * @param patch the patch
+   * @return the index of the patch
+   */
+  private int patchIndex(Patch patch) {
+    for (var i = 0; i < 3 && i < patchcircle.size(); i++) {
+      if (patchcircle.get(i) == patch)
+        return i;
+    }
+    throw new IllegalStateException("Chosen patch does not belong to the available patches to choose");
   }
   
   /**
@@ -205,7 +212,8 @@ public class GraphicAlgorithm {
    * 
    * If the given click location corresponds to a drawn graphic patch, draws the corresponding information of that patch.
    * 
-   * If the players ends up selecting that patch (which means he is buying it). Then the method will return the Optional<Patch> of that patch.
+   * If the players ends up selecting that patch (which means he is buying it) and can place it somewhere on his quiltboard,
+   * then the method will return the Optional<Patch> of that patch (it is removed from the patchcircle when the move is applied).
    * 
    * Otherwise, in all other cases, will return Optional.empty()
    * @param location location of a click
@@ -223,8 +231,9 @@ public class GraphicAlgorithm {
       var click = GraphicElements.getClick(context).getLocation();
       
       if (trioNumber == 1 && selectButton.contains(click)) { // if the player tries to buy a "buyable" patch
-        if (player.graphicCanBuyPatch(selected.patch())) {
-          return Optional.of(patchcircle.choosePatch(selected.patch()));
+        if (player.graphicCanBuyPatch(selected.patch())
+            && player.quiltboard().legalPlacements(selected.patch(), anchors) > 0) {
+          return Optional.of(selected.patch());
         }
       }
     }
@@ -240,13 +249,10 @@ public class GraphicAlgorithm {
    * Patches are drawn in trio (at most) at a time. Which requires to load one trio of patch from the patchcircle per loop.
    * 
    * @param player The playing player
-   * @param opponent The opponent of the playing player
-   * @param player1 Player 1
-   * @param player2 Player 2
    * @param patchcircle The patchcircle
    * @return Optional that would contain the patch bought or Optional.empty() if none were bought.
    */
-  private Optional<Patch> patchSelectionAlgorithm(Player player, Player opponent, PatchCircle patchcircle) {
+  private Optional<Patch> patchSelectionAlgorithm(Player player, PatchCircle patchcircle) {
     var trioNumber = 1;
     for(;;) {
       var trio = patchcircle.getTrio(trioNumber);
@@ -343,113 +349,85 @@ public class GraphicAlgorithm {
   /**
    * Algorithm during the patch placement phase.
    * 
-   * Loops until the player finally places the patch (he can modify it according to the rules).
+   * Loops until the player finally chooses where to place the patch (he can modify it according to the rules).
+   * The patch is not placed, it will be when the move is applied.
    * 
    * @param patch patch to be placed
    * @param quiltboard the quiltboard of the player who's currently playing
+   * @return the patch as the player modified it, with its anchor point
    */
-  private void patchPlacementProcedure(Patch patch, QuiltBoard quiltboard) {
-    var localpatch = patch; var anchor = new Point(-1, -1); drawPatchPlacementButtons();
+  private PatchPlaced patchPlacementProcedure(Patch patch, QuiltBoard quiltboard) {
+    var localpatch = patch; var anchor = -1; drawPatchPlacementButtons(); /* packed anchor square, -1 if none */
     for(;;) {
       drawPatchPlacementProcedureUI(quiltboard, localpatch);
-      if (!anchor.equals(new Point(-1, -1))) new GraphicPatchPlaced(context, localpatch, anchor).draw(); /* draw the patch on the quiltboard if there is a valid anchor point */
+      if (anchor >= 0) new GraphicPatchPlaced(context, localpatch, anchor).draw(); /* draw the patch on the quiltboard if there is a valid anchor point */
       var click = GraphicElements.getClick(context).getLocation();
       if (clickedOnModifyPatch(click)) {
         localpatch = getModifiedPatch(localpatch, click);
-        anchor.setLocation(-1, -1);
+        anchor = -1;
       }
-      else if (acceptButton.contains(click) && !anchor.equals(new Point(-1, -1))) {
-        quiltboard.placePatch(localpatch, anchor);
-        break;
+      else if (acceptButton.contains(click) && anchor >= 0) {
+        return new PatchPlaced(localpatch, anchor);
       }
       else if (GraphicElements.isClickOnQuiltBoard(context, click)) {
-        anchor.setLocation(-1, -1);
-        if (quiltboard.canPlacePatch(localpatch, GraphicElements.getAnchorClickPosition(context, click)))
-          anchor = GraphicElements.getAnchorClickPosition(context, click);
+        var square = GraphicElements.getAnchorClickPosition(context, click);
+        anchor = quiltboard.canPlacePatch(localpatch, square % BitBoard.WIDTH, square / BitBoard.WIDTH) ? square : -1;
       }
     }
   }
   
   /**
-   * Does all the data processing for placing the patch on the current player's quiltboard and the consequences :
-   * - The IO for placing the patch on the player's quiltboard
-   * - Updating the button count of the player
-   * - Processing the consequences of moving the player on the timeboard according to the time value of the patch
-   * - Move the player on the timeboard
-   * @param player The playing player
-   * @param patch The patch to be placed
-   * @param timeboard The timeboard
-   */
-  private void chosenPatchPlacementProccessing(Patch patch) {
-    player.updateButton(player.button() - patch.price());
-    patchPlacementProcedure(patch, player.quiltboard());
-    timeboardCrossingProcedure(player.getTileCrossedChosePatch(patch));
-    player.movePlayer(patch);
-  }
-  
-  /**
-   * According to the given TimeBoardElement, do the appropriate action
-   * @param player The current player
-   * @param element The TimeBoardElement that is being encountered
+   * Clears the main screen and redraws the borders and the player info before drawing a message at the bottom
    */
-  private void processTimeBoardElement(TimeBoardElement element) {
+  private void clearForBottomMessage() {
     GraphicElements.clearMainScreen(context);
     GraphicElements.drawUIBorder(context);
     GraphicElements.clearBottomBar(context);
     resetInfo();
-    if (element == TimeBoardElement.button) {
-      var added = player.quiltboard().buttons();
-      player.updateButton(player.button() + added);
-      resetInfo();
-      GraphicElements.drawBottomMessage(context, "You have crossed a button and have been awarded with " + added + " buttons", 0.8, 0);
-      GraphicElements.drawBottomMessage(context, "This is the total number of buttons on the patches on your quiltboard", 0.8, 1);
-      drawAndWaitContinueButton();
-    }
-    if (element == TimeBoardElement.specialPatch) {
-      GraphicElements.drawBottomMessage(context, "You are the first player to cross the special patch, you will now need to place it.", 0.8, 0);
-      drawAndWaitContinueButton();
-      GraphicElements.clearMainScreen(context);
-      patchPlacementProcedure(Patch.specialPatch(), player.quiltboard());
-    }
   }
   
-  /**
-   * Tries to process all the TimeBoardElement the player is coming across during his move.
-   * Fetches the list of TimeBoardElement met uses a stream to process them.
-   * @param player Player who's currently playing
-   * @param timeboard the timeboard
-   * @param distance distance traveled
-   */
-  private void timeboardCrossingProcedure(int distance) {
-    if (distance <= 0)
-      throw new IllegalArgumentException("distance <= 0");
-    
-    var crossedElements = timeboard.elementCrossed(player.location(), player.getDestinationIndex(distance));
-    
-    crossedElements.stream().forEach(element -> processTimeBoardElement(element));
+  @Override
+  public void turnStarted(Game game, Player player) {
+    this.player = Objects.requireNonNull(player);
+    drawTurnStartInfo(game.tokenOneOnTwo());
+    GraphicElements.clearAll(context);
   }
   
-
   /**
-   * Processes all necessary actions that happens when the current player refrain from buying a patch
-   * 
-   * @param player The current player who's playing
-   * @param opponent The opponent
-   * @param timeboard The timeboard
+   * Draws the consequences of the current player refraining from buying a patch
    */
-  private void skipSelectionProcedure() {
-    GraphicElements.clearAll(context);
-    var tilesCrossed = player.getTileCrossedSelectionSkip(opponent);
-    timeboardCrossingProcedure(tilesCrossed);
-    player.skipSelectionUpdateLocation(opponent);
+  @Override
+  public void moveApplied(Game game, Player player, int move, int distance) {
+    if (Move.kind(move) != Move.SKIP)
+      return;
     GraphicElements.clearAll(context);
     GraphicElements.drawUIBorder(context);
-    player.updateButton(player.button() + tilesCrossed);
-    GraphicElements.drawTimeBoard(context, timeboard, player1, player2, false);
+    GraphicElements.drawTimeBoard(context, timeboard, player1, player2, game.tokenOneOnTwo());
     GraphicElements.drawPlayerInfo(context, player1, player2, player);
-    GraphicElements.drawBottomMessage(context, "You have crossed " + tilesCrossed + " tiles on the timeboard and have been awarded with the same amount", 0.8, 0);
+    GraphicElements.drawBottomMessage(context, "You have crossed " + distance + " tiles on the timeboard and have been awarded with the same amount", 0.8, 0);
     drawAndWaitContinueButton();
   }
-
   
+  @Override
+  public void buttonsEarned(Game game, Player player, int buttons) {
+    clearForBottomMessage();
+    GraphicElements.drawBottomMessage(context, "You have crossed a button and have been awarded with " + buttons + " buttons", 0.8, 0);
+    GraphicElements.drawBottomMessage(context, "This is the total number of buttons on the patches on your quiltboard", 0.8, 1);
+    drawAndWaitContinueButton();
+  }
+  
+  @Override
+  public void specialPatchesPicked(Game game, Player player, int count) {
+    clearForBottomMessage();
+    GraphicElements.drawBottomMessage(context, "You have picked up " + (count == 1 ? "a special patch" : count + " special patches")
+                                      + ", you will now need to place " + (count == 1 ? "it." : "them."), 0.8, 0);
+    drawAndWaitContinueButton();
+  }
+  
+  @Override
+  public void gameEnded(Game game) {
+    GraphicElements.clearAll(context);
+    GraphicElements.drawEndMessage(context, player1, player2);
+    GraphicElements.getClick(context);
+  }
 }
@@ -59,7 +59,7 @@ public class GraphicButton {
    * Draws the button, the text's size will be tweaked so that it will not go outside of the button's bounds
    */
   public void draw() {
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(Color.LIGHT_GRAY);
       graphics.fill(bounds);
       graphics.setColor(Color.BLACK);
@@ -3,7 +3,6 @@ package fr.uge.patchwork2;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.Point;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
@@ -16,6 +15,7 @@ import fr.umlv.zen5.Event;
 
 /**
  * Contains multiple graphical functions using zen5 to draw numerous elements related to the game patchwork
+ * The drawings are added to the current scene (see GraphicScene), which is rendered in one frame before each click is awaited.
  * @author Herve Nguyen and Gabriel Radoniaina
  *
  */
@@ -33,7 +33,7 @@ public class GraphicElements {
     if (x < 0 || y < 0 || width <= 0 || height <= 0)
       throw new IllegalArgumentException("Invalid area data");
     
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(Color.WHITE);
       var area = new Rectangle2D.Double(x, y, width, height);
       graphics.fill(area);
@@ -149,7 +149,7 @@ public class GraphicElements {
    * @param color color of the square
    */
   private static void drawSquare(ApplicationContext context, double size, double x, double y, Color color) {
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(color);
       var square = new  Rectangle2D.Double(x, y, size, size);
       graphics.fill(square);
@@ -165,7 +165,7 @@ public class GraphicElements {
    * @param color color of the circle
    */
   private static void drawCircle(ApplicationContext context, double size, double x, double y, Color color) {
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(color);
       var circle = new Ellipse2D.Double(x, y, size, size);
       graphics.fill(circle);
@@ -183,7 +183,7 @@ public class GraphicElements {
    * @param color color of the line
    */
   private static void drawLine(ApplicationContext context, double x1, double y1, double x2, double y2, Color color) {
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(color);
       graphics.setStroke(new BasicStroke(3f));
       var line = new Line2D.Double(x1, y1, x2, y2);
@@ -202,7 +202,7 @@ public class GraphicElements {
    * @param color color of the line
    */
   private static void drawFineLine(ApplicationContext context, double x1, double y1, double x2, double y2, Color color) {
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(color);
       graphics.setStroke(new BasicStroke(1f));
       var line = new Line2D.Double(x1, y1, x2, y2);
@@ -303,14 +303,13 @@ public class GraphicElements {
     var originX = 0.10 * width; var originY = 0.15 * height;
     var xOffset = 0.05 * height; var yOffset = 0.01 * height;
     var elementSize = 0.018 * height;
-    var path = timeboard.path();
-    Point point;
     for (var i = 0; i < TimeBoard.getSIZE(); i++) {
-      point = TimeBoard.path2DIndex(i);
-      if (path[i] == TimeBoardElement.button)
-        drawCircle(context, elementSize, originX + point.x * tileSize + xOffset, originY + point.y * tileSize + yOffset, Color.blue);
-      if (path[i] == TimeBoardElement.specialPatch)
-        drawSquare(context, elementSize, originX + point.x * tileSize + xOffset, originY + point.y * tileSize + yOffset, Color.orange);
+      var x = originX + TimeBoard.pathX(i) * tileSize + xOffset;
+      var y = originY + TimeBoard.pathY(i) * tileSize + yOffset;
+      if (timeboard.element(i) == TimeBoardElement.button)
+        drawCircle(context, elementSize, x, y, Color.blue);
+      if (timeboard.element(i) == TimeBoardElement.specialPatch)
+        drawSquare(context, elementSize, x, y, Color.orange);
     }
   }
   
@@ -324,31 +323,30 @@ public class GraphicElements {
    * @param tokenOneOnTwo tokenOneOnTwo
    */
   private static void drawTimeToken(ApplicationContext context, Player player1, Player player2, boolean tokenOneOnTwo) {
-    var point1 = TimeBoard.path2DIndex(player1.location()); var point2 = TimeBoard.path2DIndex(player2.location());
     if (player1.location() == player2.location()) {
       if (!tokenOneOnTwo) {
-        drawTimeTokenAux(context, point1, Color.CYAN, 0);
-        drawTimeTokenAux(context, point2, Color.MAGENTA, 0.01);
+        drawTimeTokenAux(context, player1.location(), Color.CYAN, 0);
+        drawTimeTokenAux(context, player2.location(), Color.MAGENTA, 0.01);
         return;
       }
     }
-    drawTimeTokenAux(context, point2, Color.MAGENTA, 0);
-    drawTimeTokenAux(context, point1, Color.CYAN, 0.01);
+    drawTimeTokenAux(context, player2.location(), Color.MAGENTA, 0);
+    drawTimeTokenAux(context, player1.location(), Color.CYAN, 0.01);
   }
   
   /**
    * Simply draws the time token at the specified position and which the specified characteristics
    * @param context ApplicationContext
-   * @param location the position of the time token in the 2D array of the timeboard
+   * @param location the position of the time token on the timeboard (1D index, see TimeBoard.pathX)
    * @param color Color of the time token
    */
-  private static void drawTimeTokenAux(ApplicationContext context, Point location, Color color, double offset) {
+  private static void drawTimeTokenAux(ApplicationContext context, int location, Color color, double offset) {
     var height = context.getScreenInfo().getHeight();
     var width = context.getScreenInfo().getWidth();
     var oX = 0.10 * width;
     var oY = 0.16 * height;
     offset = offset * height;
-    drawCircle(context, 0.045 * height, oX + location.x * (0.07 * height) + offset, oY + location.y * (0.07 * height), color);
+    drawCircle(context, 0.045 * height, oX + TimeBoard.pathX(location) * (0.07 * height) + offset, oY + TimeBoard.pathY(location) * (0.07 * height), color);
   }
   
   /**
@@ -373,7 +371,7 @@ public class GraphicElements {
     if (size <= 0)
       throw new IllegalArgumentException("Invalid size");
     int fontSize = (int) (Math.min(width, height) * 0.03 * size);
-    context.renderFrame(graphics -> {
+    GraphicScene.add(context, graphics -> {
       graphics.setColor(color);
       graphics.setFont(new Font("Arial", Font.BOLD, fontSize));
       graphics.drawString(message, (int)x, (int)y);
@@ -552,7 +550,7 @@ public class GraphicElements {
   }
   
   /**
-   * Waits until a new click is registered (only pointer down)
+   * Draws the pending scene (see GraphicScene) then waits until a new click is registered (only pointer down)
    * @param context ApplicationContext
    * @return the click event
    */
@@ -560,6 +558,7 @@ public class GraphicElements {
     Objects.requireNonNull(context);
     if (context.getScreenInfo().getHeight() <= 0 || context.getScreenInfo().getWidth() <= 0)
       throw new IllegalArgumentException("ApplicationContext have unusable characteristics");
+    GraphicScene.submit(context); /* the screen is complete once the game waits for the player */
     Event event;
     do {
       event = context.pollOrWaitEvent(1000);
@@ -613,27 +612,24 @@ public class GraphicElements {
   
   /**
    * Assuming the given click coordinates corresponds to a click on the quiltboard.
-   * Returns the point that represents the square of the quiltboard that was clicked on.
+   * Returns the square of the quiltboard that was clicked on.
    * @param context ApplicationContext
    * @param click the coordinates of the click
-   * @return the aforementioned point
+   * @return the aforementioned square, packed as y * 9 + x (see BitBoard)
    */
-  public static Point getAnchorClickPosition(ApplicationContext context, Point2D.Float click) {
+  public static int getAnchorClickPosition(ApplicationContext context, Point2D.Float click) {
     Objects.requireNonNull(context);
     Objects.requireNonNull(click);
     if (context.getScreenInfo().getHeight() <= 0 || context.getScreenInfo().getWidth() <= 0)
       throw new IllegalArgumentException("ApplicationContext have unusable characteristics");
     
-    Point anchor;
     if (!isClickOnQuiltBoard(context, click))
       throw new IllegalArgumentException("Given click is not on the quiltboard");
     
     var height = context.getScreenInfo().getHeight();
     var blockSize = (height * 0.68) / 9;
     var offset = height * 0.01;
-    anchor = new Point((int)((click.x - offset) / blockSize),
-                       (int)((click.y - offset) / blockSize));
-    return anchor;
+    return BitBoard.index((int)((click.x - offset) / blockSize), (int)((click.y - offset) / blockSize));
   }
   
   /**
@@ -1,6 +1,7 @@
 package fr.uge.patchwork2;
 
 import java.awt.BasicStroke;
+import java.awt.Color;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Objects;
@@ -14,41 +15,39 @@ import fr.umlv.zen5.ApplicationContext;
  */
 public sealed interface GraphicPatch permits GraphicPatchPlaced, GraphicPatchStandard {
   /**
-   * Draws the colored core of a block of a patch
+   * Draws every block of a patch (colored core and outline) as a single command of the scene (see GraphicScene)
    * @param context ApplicationContext
    * @param patch the aforementioned patch
    * @param xPos x coordinates of the top left corner of the patch
    * @param yPos y coordinates of the top left corner of the patch
    * @param blockSize size of one "block" / "square" of the patch
    */
-  default void drawPatchCore(ApplicationContext context, Patch patch, double xPos, double yPos, double blockSize) {
+  default void drawBlocks(ApplicationContext context, Patch patch, double xPos, double yPos, double blockSize) {
     Objects.requireNonNull(context);
     Objects.requireNonNull(patch);
     if (blockSize < 0 || xPos < 0 || yPos < 0)
       throw new IllegalArgumentException("Invalid values");
-    context.renderFrame(graphics -> {
-      graphics.setColor(patch.color());
-      graphics.fill(new Rectangle2D.Double(xPos, yPos, blockSize, blockSize));
-    });
-  }
-  
-  /**
-   * Draws the outline of a block of a patch
-   * @param context ApplicationContext
-   * @param xPos x coordinates of the top left corner of the patch
-   * @param yPos y coordinates of the top left corner of the patch
-   * @param blockSize size of one "block" / "square" of the patch
-   */
-  default void drawPatchOutline(ApplicationContext context, double xPos, double yPos, double blockSize) {
-    Objects.requireNonNull(context);
-    if (blockSize < 0 || xPos < 0 || yPos < 0)
-      throw new IllegalArgumentException("Invalid values");
-    context.renderFrame(graphics -> {
+    var shape = patch.shape();
+    var color = new Color(patch.color());
+    GraphicScene.add(context, graphics -> {
+      var outline = graphics.getColor(); /* the outlines keep the default color of the frame */
       graphics.setStroke(new BasicStroke(1f));
-      graphics.draw(new Line2D.Double(xPos, yPos, xPos + blockSize, yPos));
-      graphics.draw(new Line2D.Double(xPos, yPos, xPos, yPos + blockSize));
-      graphics.draw(new Line2D.Double(xPos + blockSize, yPos, xPos + blockSize, yPos + blockSize));
-      graphics.draw(new Line2D.Double(xPos, yPos + blockSize, xPos + blockSize, yPos + blockSize));
+      for (var i = 0; i < shape.sizeY(); i++) {
+        for (var j = 0; j < shape.sizeX(); j++) {
+          if (!shape.contains(j, i))
+            continue;
+          var x = xPos + j * blockSize;
+          var y = yPos + i * blockSize;
+          var block = new Rectangle2D.Double(x, y, blockSize, blockSize);
+          graphics.setColor(color);
+          graphics.fill(block);
+          graphics.setColor(outline);
+          graphics.draw(new Line2D.Double(x, y, x + blockSize, y));
+          graphics.draw(new Line2D.Double(x, y, x, y + blockSize));
+          graphics.draw(new Line2D.Double(x + blockSize, y, x + blockSize, y + blockSize));
+          graphics.draw(new Line2D.Double(x, y + blockSize, x + blockSize, y + blockSize));
+        }
+      }
     });
   }
 }
@@ -1,7 +1,5 @@
 package fr.uge.patchwork2;
 
-
-import java.awt.Point;
 import java.util.Objects;
 
 import fr.umlv.zen5.ApplicationContext;
@@ -20,7 +18,7 @@ import fr.umlv.zen5.ApplicationContext;
  */
 public final class GraphicPatchPlaced implements GraphicPatch {
   private final Patch patch;
-  private final Point anchor;
+  private final int anchor;
   private final ApplicationContext context;
 
 
@@ -28,13 +26,12 @@ public final class GraphicPatchPlaced implements GraphicPatch {
    * Constructor for a GraphicPatchPlaced.
    * @param context ApplicationContext
    * @param patch the patch to wrap
-   * @param anchor the anchor point (top-left) to locate the placement of the patch
+   * @param anchor the anchor square (top-left) to locate the placement of the patch, packed as y * 9 + x
    */
-  public GraphicPatchPlaced(ApplicationContext context, Patch patch, Point anchor) {
+  public GraphicPatchPlaced(ApplicationContext context, Patch patch, int anchor) {
       Objects.requireNonNull(patch);
       Objects.requireNonNull(context);
-      Objects.requireNonNull(anchor);
-      if (anchor.x < 0 || anchor.y < 0 || anchor.x >= 9 || anchor.y >= 9)
+      if (anchor < 0 || anchor >= BitBoard.SQUARES)
         throw new IllegalArgumentException("Coordinates out of bounds");
       this.context = context;
       this.patch = patch;
@@ -54,18 +51,10 @@ public final class GraphicPatchPlaced implements GraphicPatch {
    * Draws the placed patch on the quiltboard (assuming it is there)
    */
   public void draw() {
-    var form = patch.form();
     var offset = context.getScreenInfo().getHeight() * 0.01;
     var blockSize = (context.getScreenInfo().getHeight() * 0.68) / 9;
-    for (int i = 0; i < form.length; i++) {
-      for (int j = 0; j < form[0].length; j++) {
-        if (form[i][j]) {
-          double xPos = anchor.x * blockSize + j * blockSize + offset;
-          double yPos = anchor.y * blockSize + i * blockSize + offset;
-          drawPatchCore(context, patch, xPos, yPos, blockSize);
-          drawPatchOutline(context, xPos, yPos, blockSize);
-        }
-      }
-    }
+    var anchorX = anchor % BitBoard.WIDTH;
+    var anchorY = anchor / BitBoard.WIDTH;
+    drawBlocks(context, patch, anchorX * blockSize + offset, anchorY * blockSize + offset, blockSize);
   }
 }
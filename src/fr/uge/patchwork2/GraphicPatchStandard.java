@@ -39,12 +39,11 @@ public final class GraphicPatchStandard implements GraphicPatch {
       if (x < 0 || y < 0 || x > width || y > height)
         throw new IllegalArgumentException("Coordinates out of bounds");
       
-      var form = patch.form();
-      var blockWidth = 0.10 * width / form[0].length; /* limiting the width to not got beyond 10% of the width of the screen */
-      var blockHeight = 0.15 * height / form.length; /* limiting the height to not got beyond 15% of the height of the screen */
+      var blockWidth = 0.10 * width / patch.sizeX(); /* limiting the width to not got beyond 10% of the width of the screen */
+      var blockHeight = 0.15 * height / patch.sizeY(); /* limiting the height to not got beyond 15% of the height of the screen */
       this.context = context;
       this.blockSize = Math.min(blockWidth, blockHeight); /* choosing the smallest limit */
-      this.bounds = new Rectangle2D.Double(x, y, blockSize * form[0].length, blockSize * form.length); /* Used to check if clicks are located on the drawn patch */
+      this.bounds = new Rectangle2D.Double(x, y, blockSize * patch.sizeX(), blockSize * patch.sizeY()); /* Used to check if clicks are located on the drawn patch */
       this.patch = patch;
       this.x = x;
       this.y = y;
@@ -63,17 +62,7 @@ public final class GraphicPatchStandard implements GraphicPatch {
    * Draws the button, the size will be tweaked to it won't be bigger than a certain threshold
    */
   public void draw() {
-    var form = patch.form();
-    for (int i = 0; i < form.length; i++) {
-      for (int j = 0; j < form[0].length; j++) {
-        if (form[i][j]) {
-          double xPos = x + j * blockSize;
-          double yPos = y + i * blockSize;
-          drawPatchCore(context, patch, xPos, yPos, blockSize);
-          drawPatchOutline(context, xPos, yPos, blockSize);
-        }
-      }
-    }
+    drawBlocks(context, patch, x, y, blockSize);
   }
   
   /**
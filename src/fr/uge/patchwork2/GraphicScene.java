@@ -0,0 +1,68 @@
+package fr.uge.patchwork2;
+
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import fr.umlv.zen5.ApplicationContext;
+
+/**
+ * Collects the drawing commands of a screen and submits them in a single frame.
+ *
+ * The primitives (see GraphicElements, GraphicPatch, GraphicButton) add their command to the scene instead of rendering
+ * a frame each : the scene is submitted as one renderFrame when the screen is complete, that is before waiting for a click
+ * (see GraphicElements.getClick). Each command draws on its own copy of the graphics context,
+ * so that a color or a stroke set by a command does not leak into the next one, as with one frame per command.
+ * The GUI draws from the thread of the application only, so the scene is shared by the whole graphic mode.
+ * @author Herve Nguyen and Gabriel Radoniaina
+ *
+ */
+public final class GraphicScene {
+  /**
+   * Commands waiting to be submitted, in drawing order
+   */
+  private static final ArrayList<Consumer<Graphics2D>> commands = new ArrayList<>();
+  /**
+   * Context the waiting commands are drawn on
+   */
+  private static ApplicationContext pending;
+
+  /**
+   * Adds a drawing command to the scene
+   * @param context ApplicationContext the command is drawn on
+   * @param command the drawing command
+   */
+  public static void add(ApplicationContext context, Consumer<Graphics2D> command) {
+    Objects.requireNonNull(context);
+    Objects.requireNonNull(command);
+    if (pending != null && pending != context)
+      submit(pending);
+    pending = context;
+    commands.add(command);
+  }
+
+  /**
+   * Draws every waiting command in one frame, nothing is rendered if the scene is empty
+   * @param context ApplicationContext
+   */
+  public static void submit(ApplicationContext context) {
+    Objects.requireNonNull(context);
+    if (pending != context || commands.isEmpty())
+      return;
+    var frame = List.copyOf(commands);
+    commands.clear();
+    pending = null;
+    context.renderFrame(graphics -> {
+      for (var command : frame) {
+        var copy = (Graphics2D) graphics.create();
+        try {
+          command.accept(copy);
+        } finally {
+          copy.dispose();
+        }
+      }
+    });
+  }
+}
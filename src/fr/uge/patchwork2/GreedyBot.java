@@ -0,0 +1,61 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Bot playing the move that maximizes its value right after the move (one ply, no look ahead) :
+ * its score plus the buttons its quilt board will still earn on the buttons of the time board in front of it.
+ * Ties are broken at random.
+ * A bot keeps buffers between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class GreedyBot implements Decider {
+  private final Random random;
+  private final int[] moves;
+
+  /**
+   * Constructor for GreedyBot
+   * @param random random generator used to break ties
+   */
+  public GreedyBot(Random random) {
+    this.random = Objects.requireNonNull(random);
+    moves = new int[Game.MAX_MOVES];
+  }
+
+  /**
+   * Computes the value of a player : his score plus his expected income until the end of the game
+   * @param game the game
+   * @param player the player
+   * @return the value
+   */
+  public static int value(Game game, Player player) {
+    return Evaluator.GREEDY.evaluate(game, player);
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    var count = game.legalMoves(moves);
+    if (count == 0)
+      throw new IllegalStateException("No legal move, the game is over");
+    var player = game.currentPlayer();
+    var best = 0;
+    var bestValue = Integer.MIN_VALUE;
+    var ties = 0;
+    for (var i = 0; i < count; i++) {
+      game.apply(moves[i]);
+      var value = value(game, player);
+      game.undo();
+      if (value > bestValue) {
+        bestValue = value;
+        best = moves[i];
+        ties = 1;
+      } else if (value == bestValue && random.nextInt(++ties) == 0) {
+        best = moves[i];
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,58 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table stored in a long array of the Java heap, two longs per entry.
+ *
+ * An entry stores the hash xored with the data, then the data : an entry torn by two threads writing it
+ * at the same time is not found instead of being read with the data of another position, so a table can be
+ * shared by several searches without locks.
+ * An entry is replaced by any other position, and by the same position searched at least as deep.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class HeapTranspositionTable implements TranspositionTable {
+  private final long[] table;
+  private final int mask;
+
+  /**
+   * Constructor for HeapTranspositionTable
+   * @param megabytes size of the table in megabytes (the number of entries is rounded down to a power of two)
+   */
+  public HeapTranspositionTable(int megabytes) {
+    var entries = TranspositionTable.entries(megabytes, 2 * Long.BYTES);
+    if (entries > 1 << 29)
+      throw new IllegalArgumentException("the table is too big for the heap");
+    table = new long[(int) entries * 2];
+    mask = (int) entries - 1;
+  }
+
+  @Override
+  public long probe(long hash) {
+    var index = ((int) hash & mask) << 1;
+    var data = table[index + 1];
+    return (table[index] ^ data) == hash ? data : 0;
+  }
+
+  @Override
+  public void store(long hash, int depth, int value, int bound, int move) {
+    var index = ((int) hash & mask) << 1;
+    var data = table[index + 1];
+    if ((table[index] ^ data) == hash && TranspositionTable.depth(data) > depth)
+      return;
+    data = TranspositionTable.pack(depth, value, bound, move);
+    table[index] = hash ^ data;
+    table[index + 1] = data;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(table, 0);
+  }
+
+  @Override
+  public long capacity() {
+    return mask + 1L;
+  }
+}
@@ -1,6 +1,9 @@
 package fr.uge.patchwork2;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 import fr.umlv.zen5.Application;
@@ -17,11 +20,24 @@ public class Main {
    * @param args arguments given to the program 
    */
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("sim")) {
+      simulationMode(args);
+      return;
+    }
+    if (args.length > 0 && args[0].equals("scaling")) {
+      scalingMode(args);
+      return;
+    }
+    if (args.length > 0 && args[0].equals("eval")) {
+      evaluationMode(args);
+      return;
+    }
     var scanner = new Scanner(System.in);
     System.out.println("### Game mode selection\n");
     while(true) {
       terminalMsg();
       graphicMsg();
+      simulationMsg();
       var str = scanner.next();
       if (str.equals("basic")){
         var game = new GameAlgorithm(0);
@@ -33,6 +49,17 @@ public class Main {
         game.terminalMode(scanner);
         break;
       }
+      if (str.equals("ai")) {
+        var game = new GameAlgorithm(1);
+        try (var bot = new MctsBot(new Random(), 0, 1000)) {
+          game.terminalMode(scanner, 2, current -> {
+            var move = bot.decide(current);
+            System.out.println(bot.report());
+            return move;
+          });
+        }
+        break;
+      }
       if (str.equals("gfx")) {
         var game = new GameAlgorithm(1);
         Application.run(Color.WHITE, context -> {
@@ -41,6 +68,18 @@ public class Main {
         });
         break;
       }
+      if (str.equals("sim")) {
+        simulationMode(("sim" + scanner.nextLine()).trim().split(" +"));
+        break;
+      }
+      if (str.equals("scaling")) {
+        scalingMode(("scaling" + scanner.nextLine()).trim().split(" +"));
+        break;
+      }
+      if (str.equals("eval")) {
+        evaluationMode(("eval" + scanner.nextLine()).trim().split(" +"));
+        break;
+      }
     }
     scanner.close();
     return;
@@ -52,12 +91,138 @@ public class Main {
   private static void terminalMsg(){
     System.out.println("## For the terminal mode :");
     System.out.println("# Input \"basic\" for the basic mode or \"full\" for the full game");
+    System.out.println("# Input \"ai\" to play the full game against the computer (Monte Carlo Tree Search)");
   }
   
   private static void graphicMsg() {
     System.out.println("## For the graphic mode :");
     System.out.println("# Input \"gfx\"");
   }
+  
+  /**
+   * Prints a message to explain how to launch the simulation mode
+   */
+  private static void simulationMsg() {
+    System.out.println("## For the simulation mode (bots playing against each other) :");
+    System.out.println("# Input \"sim <games> <bot> <bot> [basic|full] [threads] [table MB]\", bots : " + Simulator.BOTS);
+    System.out.println("# (with a table size, the alpha-beta bots share an off-heap transposition table of that size)");
+    System.out.println("# Input \"scaling [millis] [threads]\" to measure the playouts/s of the parallel MCTS");
+    System.out.println("# Input \"eval [millis]\" to measure the evaluations/s of the evaluators");
+  }
+  
+  /**
+   * Parses the mode of a simulation
+   * @param mode "basic" or "full"
+   * @return the type of the games (basic = 0 or full = 1)
+   */
+  private static int gameType(String mode) {
+    return switch (mode) {
+      case "basic" -> 0;
+      case "full" -> 1;
+      default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected basic or full");
+    };
+  }
 
-}
+  /**
+   * Plays a batch of games between two bots and prints the results
+   * @param parameters "sim", the number of games, the names of the two bots, then optionally the mode, the number of threads
+   * and the size in megabytes of an off-heap transposition table shared by the alpha-beta bots
+   */
+  private static void simulationMode(String[] parameters) {
+    if (parameters.length < 4) {
+      simulationMsg();
+      return;
+    }
+    try {
+      var games = Integer.parseInt(parameters[1]);
+      var type = parameters.length > 4 ? gameType(parameters[4]) : 1;
+      var threads = parameters.length > 5 ? Integer.parseInt(parameters[5]) : Runtime.getRuntime().availableProcessors();
+      var table = parameters.length > 6 ? new OffHeapTranspositionTable(Integer.parseInt(parameters[6])) : null;
+      var simulator = new Simulator(type, parameters[2], parameters[3], threads, table);
+      var start = System.nanoTime();
+      var stats = simulator.run(games, System.nanoTime());
+      var seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%d games on %d threads in %.2f s (%.0f games/s)%n", games, threads, seconds, games / seconds);
+      System.out.print(stats.report(parameters[2], parameters[3]));
+    } catch (IllegalArgumentException e) { /* also thrown for an invalid number */
+      System.out.println(e.getMessage());
+      simulationMsg();
+    }
+  }
+
+  /**
+   * Measures the playouts per second of the parallel MCTS on the first move of a full game,
+   * for 1, 2, 4... threads up to the given number of threads, and prints them with the speedup
+   * @param parameters "scaling", then optionally the duration of a search in milliseconds and the maximum number of threads
+   */
+  private static void scalingMode(String[] parameters) {
+    try {
+      var millis = parameters.length > 1 ? Long.parseLong(parameters[1]) : 1000;
+      var maxThreads = parameters.length > 2 ? Integer.parseInt(parameters[2]) : Runtime.getRuntime().availableProcessors();
+      if (millis <= 0 || maxThreads <= 0)
+        throw new IllegalArgumentException("the duration and the threads must be positive");
+      var seed = System.nanoTime();
+      var game = new Game(1, new Random(seed));
+      try (var warmUp = new ParallelMctsBot(new Random(seed), 1, 0, millis)) {
+        warmUp.decide(game);
+      }
+      var reference = 0.0;
+      for (var threads = 1;; threads = Math.min(threads * 2, maxThreads)) {
+        try (var bot = new ParallelMctsBot(new Random(seed), threads, 0, millis)) {
+          bot.decide(game);
+          if (threads == 1)
+            reference = bot.playoutsPerSecond();
+          System.out.printf("%3d threads : %10.0f playouts/s (x%.2f)%n", threads, bot.playoutsPerSecond(),
+                            reference == 0 ? 0 : bot.playoutsPerSecond() / reference);
+        }
+        if (threads == maxThreads)
+          break;
+      }
+    } catch (IllegalArgumentException e) { /* also thrown for an invalid number */
+      System.out.println(e.getMessage());
+      simulationMsg();
+    }
+  }
 
+  /**
+   * Measures the evaluations per second of the evaluators on the positions of random full games
+   * @param parameters "eval", then optionally the duration of each measure in milliseconds
+   */
+  private static void evaluationMode(String[] parameters) {
+    try {
+      var millis = parameters.length > 1 ? Long.parseLong(parameters[1]) : 1000;
+      if (millis <= 0)
+        throw new IllegalArgumentException("the duration must be positive");
+      var random = new Random();
+      var positions = new ArrayList<Game>();
+      while (positions.size() < 1000) {
+        var game = new Game(1, random);
+        var bot = new RandomBot(random);
+        while (!game.isOver()) {
+          game.apply(bot.decide(game));
+          positions.add(game.copy());
+        }
+      }
+      for (var evaluator : List.of(Evaluator.GREEDY, Evaluator.FRAGMENTATION)) {
+        for (var pass = 0; pass < 2; pass++) { /* the first pass warms up the compiler */
+          var evaluations = 0L;
+          var checksum = 0L;
+          var start = System.nanoTime();
+          var deadline = start + millis * 1_000_000;
+          while (System.nanoTime() < deadline) {
+            for (var game : positions) {
+              checksum += evaluator.evaluate(game, game.player1()) + evaluator.evaluate(game, game.player2());
+            }
+            evaluations += 2 * positions.size();
+          }
+          var seconds = (System.nanoTime() - start) / 1e9;
+          if (pass == 1)
+            System.out.printf("%s : %12.0f evaluations/s (checksum %d)%n", evaluator, evaluations / seconds, checksum);
+        }
+      }
+    } catch (IllegalArgumentException e) { /* also thrown for an invalid number */
+      System.out.println(e.getMessage());
+      simulationMsg();
+    }
+  }
+}
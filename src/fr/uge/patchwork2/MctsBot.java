@@ -0,0 +1,214 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Bot choosing its moves with a Monte Carlo Tree Search (UCT).
+ *
+ * Patchwork has no hidden information nor chance once the patch circle is shuffled, so a node of the tree
+ * is reached by applying the moves of its path to the game (and undoing them afterwards).
+ * To keep the tree small, the children of a node are the candidates of PlayoutPolicy (at most four),
+ * and the playouts use the lightly guided moves of the same policy.
+ * The search stops after a number of iterations or after a duration, whichever comes first.
+ * A bot keeps buffers between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class MctsBot implements Decider {
+  /**
+   * Exploration constant of UCT
+   */
+  private static final double EXPLORATION = Math.sqrt(2);
+  /**
+   * Number of iterations between two checks of the clock
+   */
+  private static final int CLOCK_INTERVAL = 64;
+  private final PlayoutPolicy policy;
+  private final int iterations;
+  private final long duration;
+  private final int[] candidates;
+  /**
+   * Nodes visited by the current iteration, from the root
+   */
+  private Node[] path;
+  private long lastPlayouts;
+  private long lastNanos;
+
+  /**
+   * Node of the search tree
+   */
+  private static final class Node {
+    private final int move;
+    /**
+     * id of the player who made the move leading to this node
+     */
+    private final int player;
+    private int[] moves;
+    private Node[] children;
+    private int expanded;
+    private int visits;
+    private double wins;
+
+    private Node(int move, int player) {
+      this.move = move;
+      this.player = player;
+    }
+  }
+
+  /**
+   * Constructor for MctsBot
+   * @param random random generator used by the playouts
+   * @param iterations maximum number of iterations per move (0 for no limit)
+   * @param millis maximum duration of the search per move in milliseconds (0 for no limit)
+   */
+  public MctsBot(Random random, int iterations, long millis) {
+    policy = new PlayoutPolicy(random);
+    if (iterations < 0 || millis < 0)
+      throw new IllegalArgumentException("budget cannot be negative");
+    if (iterations == 0 && millis == 0)
+      throw new IllegalArgumentException("the search needs an iteration or a time budget");
+    this.iterations = iterations == 0 ? Integer.MAX_VALUE : iterations;
+    this.duration = millis == 0 ? Long.MAX_VALUE : millis * 1_000_000;
+    candidates = new int[PlayoutPolicy.MAX_CANDIDATES];
+    path = new Node[64];
+  }
+
+  /**
+   * Returns the number of playouts of the last decision
+   * @return the number of playouts
+   */
+  public long lastPlayouts() {
+    return lastPlayouts;
+  }
+
+  /**
+   * Returns the number of playouts per second of the last decision
+   * @return the number of playouts per second
+   */
+  public double playoutsPerSecond() {
+    return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+  }
+
+  /**
+   * Generates a string describing the last decision
+   * @return the corresponding string
+   */
+  public String report() {
+    return String.format("MCTS : %d playouts in %.0f ms (%.0f playouts/s)", lastPlayouts, lastNanos / 1e6, playoutsPerSecond());
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    if (game.isOver())
+      throw new IllegalStateException("No legal move, the game is over");
+    var start = System.nanoTime();
+    var root = new Node(0, 0);
+    var count = 0;
+    for (; count < iterations; count++) {
+      if (count % CLOCK_INTERVAL == 0 && System.nanoTime() - start >= duration)
+        break;
+      iterate(game, root);
+    }
+    lastPlayouts = count;
+    lastNanos = System.nanoTime() - start;
+    if (root.children == null) /* not even one iteration : the first candidate is legal */
+      return policy.candidates(game, candidates) > 0 ? candidates[0] : 0;
+    var best = root.children[0];
+    for (var i = 1; i < root.expanded; i++) {
+      if (root.children[i].visits > best.visits)
+        best = root.children[i];
+    }
+    return best.move;
+  }
+
+  /**
+   * Runs one iteration of the search : selection, expansion, playout and backpropagation.
+   * The game is left in the state it was given.
+   * @param game the game at the root of the tree
+   * @param root the root of the tree
+   */
+  private void iterate(Game game, Node root) {
+    var applied = 0;
+    var node = root;
+    var depth = 0;
+    path[depth++] = node;
+    /* selection */
+    while (node.moves != null && node.expanded == node.moves.length && node.expanded > 0) {
+      node = select(node);
+      game.apply(node.move);
+      applied++;
+      push(depth++, node);
+    }
+    /* expansion */
+    if (node.moves == null) {
+      var count = policy.candidates(game, candidates);
+      node.moves = Arrays.copyOf(candidates, count);
+      node.children = new Node[count];
+    }
+    if (node.expanded < node.moves.length) {
+      var player = game.currentPlayer().id();
+      var child = new Node(node.moves[node.expanded], player);
+      node.children[node.expanded++] = child;
+      game.apply(child.move);
+      applied++;
+      node = child;
+      push(depth++, node);
+    }
+    /* playout */
+    applied += policy.playout(game);
+    var score1 = game.player1().score();
+    var score2 = game.player2().score();
+    for (; applied > 0; applied--)
+      game.undo();
+    /* backpropagation */
+    for (var i = 0; i < depth; i++) {
+      var visited = path[i];
+      visited.visits++;
+      visited.wins += visited.player == 1 ? result(score1, score2) : result(score2, score1);
+    }
+  }
+
+  /**
+   * Adds a node to the path, growing it if needed
+   * @param index index of the node
+   * @param node the node
+   */
+  private void push(int index, Node node) {
+    if (index == path.length)
+      path = Arrays.copyOf(path, path.length * 2);
+    path[index] = node;
+  }
+
+  /**
+   * Returns the result of a game for a player
+   * @param score score of the player
+   * @param other score of the opponent
+   * @return 1 for a win, 0.5 for a draw and 0 for a loss
+   */
+  private static double result(int score, int other) {
+    return score > other ? 1 : score == other ? 0.5 : 0;
+  }
+
+  /**
+   * Selects the child of a fully expanded node with the best UCT value
+   * @param node the node
+   * @return the selected child
+   */
+  private static Node select(Node node) {
+    var log = Math.log(node.visits);
+    Node best = null;
+    var bestValue = Double.NEGATIVE_INFINITY;
+    for (var i = 0; i < node.expanded; i++) {
+      var child = node.children[i];
+      var value = child.wins / child.visits + EXPLORATION * Math.sqrt(log / child.visits);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,176 @@
+package fr.uge.patchwork2;
+
+/**
+ * Represents a move of the current player, applied to a game with Game.apply
+ *
+ * A move is either :
+ * - skipping the patch selection (SKIP)
+ * - buying one of the first three patches in front of the neutral token, placed with the given orientation and anchor (BUY)
+ * - placing a special patch picked up on the time board at the given anchor (SPECIAL)
+ *
+ * A move can be encoded into an int so that search algorithms do not need to allocate moves.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ * @param kind kind of the move (SKIP, BUY or SPECIAL)
+ * @param patchIndex index of the bought patch in front of the neutral token (between 0 and 2, 0 if not a BUY)
+ * @param orientation index of the orientation of the bought patch (see Patch.orientation(int), 0 if not a BUY)
+ * @param anchor index y * 9 + x of the anchor square on the quilt board (0 for a SKIP)
+ */
+public record Move(int kind, int patchIndex, int orientation, int anchor) {
+  /**
+   * Kind of the move where the player refrains from buying a patch
+   */
+  public static final int SKIP = 0;
+  /**
+   * Kind of the move where the player buys a patch
+   */
+  public static final int BUY = 1;
+  /**
+   * Kind of the move where the player places a special patch
+   */
+  public static final int SPECIAL = 2;
+
+  /**
+   * Constructor for Move
+   * @param kind kind of the move (SKIP, BUY or SPECIAL)
+   * @param patchIndex index of the bought patch in front of the neutral token
+   * @param orientation index of the orientation of the bought patch
+   * @param anchor index y * 9 + x of the anchor square on the quilt board
+   */
+  public Move {
+    if (kind != SKIP && kind != BUY && kind != SPECIAL)
+      throw new IllegalArgumentException("Unknown move kind");
+    if (patchIndex < 0 || patchIndex > 2)
+      throw new IllegalArgumentException("patchIndex must be between 0 and 2");
+    if (orientation < 0 || orientation > 7)
+      throw new IllegalArgumentException("orientation must be between 0 and 7");
+    if (anchor < 0 || anchor >= BitBoard.SQUARES)
+      throw new IllegalArgumentException("anchor out of the quilt board");
+    if (kind != BUY && (patchIndex != 0 || orientation != 0))
+      throw new IllegalArgumentException("Only a BUY has a patch and an orientation");
+    if (kind == SKIP && anchor != 0)
+      throw new IllegalArgumentException("A SKIP has no anchor");
+  }
+
+  /**
+   * Creates the move where the player refrains from buying a patch
+   * @return the move
+   */
+  public static Move skip() {
+    return new Move(SKIP, 0, 0, 0);
+  }
+
+  /**
+   * Creates the move where the player buys a patch
+   * @param patchIndex index of the patch in front of the neutral token (between 0 and 2)
+   * @param orientation index of the orientation of the patch
+   * @param x x coordinate of the anchor on the quilt board
+   * @param y y coordinate of the anchor on the quilt board
+   * @return the move
+   */
+  public static Move buy(int patchIndex, int orientation, int x, int y) {
+    checkSquare(x, y);
+    return new Move(BUY, patchIndex, orientation, BitBoard.index(x, y));
+  }
+
+  /**
+   * Creates the move where the player places a special patch
+   * @param x x coordinate of the square on the quilt board
+   * @param y y coordinate of the square on the quilt board
+   * @return the move
+   */
+  public static Move special(int x, int y) {
+    checkSquare(x, y);
+    return new Move(SPECIAL, 0, 0, BitBoard.index(x, y));
+  }
+
+  /**
+   * Checks that the given coordinates are on the quilt board
+   * @param x x coordinate
+   * @param y y coordinate
+   */
+  private static void checkSquare(int x, int y) {
+    if (x < 0 || x >= BitBoard.WIDTH || y < 0 || y >= BitBoard.WIDTH)
+      throw new IllegalArgumentException("square out of the quilt board");
+  }
+
+  /**
+   * Getter for the x coordinate of the anchor
+   * @return the x coordinate
+   */
+  public int x() {
+    return anchor % BitBoard.WIDTH;
+  }
+
+  /**
+   * Getter for the y coordinate of the anchor
+   * @return the y coordinate
+   */
+  public int y() {
+    return anchor / BitBoard.WIDTH;
+  }
+
+  /**
+   * Encodes the move into an int
+   * @return the encoded move
+   */
+  public int encode() {
+    return encode(kind, patchIndex, orientation, anchor);
+  }
+
+  /**
+   * Decodes a move previously encoded into an int
+   * @param move the encoded move
+   * @return the move
+   */
+  public static Move decode(int move) {
+    return new Move(kind(move), patchIndex(move), orientation(move), anchor(move));
+  }
+
+  /**
+   * Encodes a move into an int without creating a Move (the values are not checked)
+   * @param kind kind of the move (SKIP, BUY or SPECIAL)
+   * @param patchIndex index of the bought patch in front of the neutral token
+   * @param orientation index of the orientation of the bought patch
+   * @param anchor index y * 9 + x of the anchor square on the quilt board
+   * @return the encoded move
+   */
+  public static int encode(int kind, int patchIndex, int orientation, int anchor) {
+    return kind << 12 | patchIndex << 10 | orientation << 7 | anchor;
+  }
+
+  /**
+   * Returns the kind of an encoded move
+   * @param move the encoded move
+   * @return the kind of the move
+   */
+  public static int kind(int move) {
+    return move >>> 12;
+  }
+
+  /**
+   * Returns the index of the bought patch of an encoded move
+   * @param move the encoded move
+   * @return the index of the patch
+   */
+  public static int patchIndex(int move) {
+    return (move >>> 10) & 0b11;
+  }
+
+  /**
+   * Returns the orientation of the bought patch of an encoded move
+   * @param move the encoded move
+   * @return the index of the orientation
+   */
+  public static int orientation(int move) {
+    return (move >>> 7) & 0b111;
+  }
+
+  /**
+   * Returns the anchor of an encoded move
+   * @param move the encoded move
+   * @return the index y * 9 + x of the anchor square
+   */
+  public static int anchor(int move) {
+    return move & 0b1111111;
+  }
+}
@@ -0,0 +1,85 @@
+package fr.uge.patchwork2;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Transposition table stored outside of the Java heap, so that a table of millions of entries
+ * is never copied nor scanned by the garbage collector.
+ *
+ * The memory is made of direct byte buffers of at most 1 GB (the index of a buffer is an int),
+ * read and written as longs through a VarHandle. An entry takes 16 bytes :
+ * the hash xored with the data, then the data (depth, value, bound and best move, see TranspositionTable).
+ * Each long is read and written atomically, and an entry torn by two threads writing it at the same time
+ * is not found, so a table can be shared without locks by all the searches of a simulation.
+ * An entry is replaced by any other position, and by the same position searched at least as deep.
+ * The memory is released when the table is garbage collected.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class OffHeapTranspositionTable implements TranspositionTable {
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  /**
+   * Size of an entry in bytes
+   */
+  private static final int ENTRY_BYTES = 2 * Long.BYTES;
+  /**
+   * log2 of the number of entries of a buffer (1 GB)
+   */
+  private static final int CHUNK_SHIFT = 26;
+
+  private final ByteBuffer[] chunks;
+  private final long mask;
+  private final int chunkMask;
+
+  /**
+   * Constructor for OffHeapTranspositionTable
+   * @param megabytes size of the table in megabytes (the number of entries is rounded down to a power of two)
+   */
+  public OffHeapTranspositionTable(int megabytes) {
+    var entries = TranspositionTable.entries(megabytes, ENTRY_BYTES);
+    var perChunk = (int) Math.min(entries, 1L << CHUNK_SHIFT);
+    chunks = new ByteBuffer[(int) (entries / perChunk)];
+    for (var i = 0; i < chunks.length; i++)
+      chunks[i] = ByteBuffer.allocateDirect(perChunk * ENTRY_BYTES); /* filled with zeros : no entry */
+    mask = entries - 1;
+    chunkMask = perChunk - 1;
+  }
+
+  @Override
+  public long probe(long hash) {
+    var index = hash & mask;
+    var chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+    var offset = ((int) index & chunkMask) * ENTRY_BYTES;
+    var data = (long) LONGS.getOpaque(chunk, offset + Long.BYTES);
+    return ((long) LONGS.getOpaque(chunk, offset) ^ data) == hash ? data : 0;
+  }
+
+  @Override
+  public void store(long hash, int depth, int value, int bound, int move) {
+    var index = hash & mask;
+    var chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+    var offset = ((int) index & chunkMask) * ENTRY_BYTES;
+    var data = (long) LONGS.getOpaque(chunk, offset + Long.BYTES);
+    if (((long) LONGS.getOpaque(chunk, offset) ^ data) == hash && TranspositionTable.depth(data) > depth)
+      return;
+    data = TranspositionTable.pack(depth, value, bound, move);
+    LONGS.setOpaque(chunk, offset, hash ^ data);
+    LONGS.setOpaque(chunk, offset + Long.BYTES, data);
+  }
+
+  @Override
+  public void clear() {
+    for (var chunk : chunks) {
+      for (var offset = 0; offset < chunk.capacity(); offset += Long.BYTES)
+        LONGS.setOpaque(chunk, offset, 0L);
+    }
+  }
+
+  @Override
+  public long capacity() {
+    return mask + 1;
+  }
+}
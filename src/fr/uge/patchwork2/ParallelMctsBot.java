@@ -0,0 +1,404 @@
+package fr.uge.patchwork2;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Bot choosing its moves with a Monte Carlo Tree Search shared by several threads (tree parallelization).
+ *
+ * Every thread works on its own copy of the game (see Game.copy) and on the same tree, without locks :
+ * - the visits and the wins of a node are packed into one long updated atomically
+ * - a thread going down the tree adds a visit without win to each node of its path (virtual loss),
+ *   which makes the other threads explore other branches until the result of its playout is added
+ * - the children of a node are created all at once by the first thread reaching it and published with a CAS
+ *
+ * The candidates and the playouts are the ones of PlayoutPolicy, like MctsBot.
+ *
+ * The calling thread is one of the workers, the others run on helper threads reused by every decision,
+ * so no thread is created during a search. The helpers are either owned by the bot, started with it and stopped
+ * when it is closed, or shared by several bots (see newHelpers) and stopped by their owner.
+ * A worker only starts if the search is not over : on a shared pool busy with the searches of other bots,
+ * a helper that has not started when the calling thread is done is not waited for.
+ * In a simulation (see Simulator), the parallel MCTS bots of all the games share one pool of helpers,
+ * so the threads of a batch are the threads playing the games plus this pool : the games played at the same time
+ * share the helpers, which gives the number of games per second of a batch but not the scaling of one search,
+ * measured by the "scaling" mode of Main with a single bot.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class ParallelMctsBot implements Decider {
+  /**
+   * Exploration constant of UCT
+   */
+  private static final double EXPLORATION = Math.sqrt(2);
+  /**
+   * Number of iterations between two checks of the clock
+   */
+  private static final int CLOCK_INTERVAL = 64;
+  /**
+   * One visit in the packed statistics of a node (the visits are in the 32 high bits, twice the wins in the 32 low bits)
+   */
+  private static final long VISIT = 1L << 32;
+  /**
+   * Seconds after which an idle helper thread ends
+   */
+  private static final int IDLE_SECONDS = 10;
+
+  private final Random random;
+  private final int threads;
+  private final int iterations;
+  private final long duration;
+  /**
+   * Threads running the workers other than the calling thread (null for a single thread)
+   */
+  private final ExecutorService helpers;
+  /**
+   * true if the helpers are owned by the bot and stopped when it is closed
+   */
+  private final boolean ownsHelpers;
+  private long lastPlayouts;
+  private long lastNanos;
+
+  /**
+   * Node of the search tree shared by the threads
+   */
+  private static final class Node {
+    private static final AtomicLongFieldUpdater<Node> STATS =
+        AtomicLongFieldUpdater.newUpdater(Node.class, "stats");
+    private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+    private final int move;
+    /**
+     * id of the player who made the move leading to this node
+     */
+    private final int player;
+    /**
+     * Visits in the 32 high bits, twice the wins (a draw is worth half a win) in the 32 low bits
+     */
+    private volatile long stats;
+    private volatile Node[] children;
+
+    private Node(int move, int player) {
+      this.move = move;
+      this.player = player;
+    }
+
+    private static int visits(long stats) {
+      return (int) (stats >>> 32);
+    }
+
+    private static double wins(long stats) {
+      return (stats & 0xFFFF_FFFFL) / 2.0;
+    }
+  }
+
+  /**
+   * Constructor for ParallelMctsBot, the bot starts its own helper threads and stops them when it is closed
+   * @param random random generator used to seed the random generators of the threads
+   * @param threads number of threads sharing the tree
+   * @param iterations maximum number of iterations per move, all threads included (0 for no limit)
+   * @param millis maximum duration of the search per move in milliseconds (0 for no limit)
+   */
+  public ParallelMctsBot(Random random, int threads, int iterations, long millis) {
+    this(random, threads, iterations, millis, threads == 1 ? null : newHelpers(threads - 1), true);
+  }
+
+  /**
+   * Constructor for ParallelMctsBot running its helper workers on a pool shared with other bots,
+   * the pool is not stopped when the bot is closed
+   * @param random random generator used to seed the random generators of the threads
+   * @param threads number of threads sharing the tree
+   * @param iterations maximum number of iterations per move, all threads included (0 for no limit)
+   * @param millis maximum duration of the search per move in milliseconds (0 for no limit)
+   * @param helpers pool running the workers other than the calling thread (see newHelpers)
+   */
+  public ParallelMctsBot(Random random, int threads, int iterations, long millis, ExecutorService helpers) {
+    this(random, threads, iterations, millis, Objects.requireNonNull(helpers), false);
+  }
+
+  private ParallelMctsBot(Random random, int threads, int iterations, long millis, ExecutorService helpers, boolean ownsHelpers) {
+    this.random = Objects.requireNonNull(random);
+    if (threads <= 0)
+      throw new IllegalArgumentException("threads must be positive");
+    if (iterations < 0 || millis < 0)
+      throw new IllegalArgumentException("budget cannot be negative");
+    if (iterations == 0 && millis == 0)
+      throw new IllegalArgumentException("the search needs an iteration or a time budget");
+    this.threads = threads;
+    this.iterations = iterations == 0 ? Integer.MAX_VALUE : iterations;
+    this.duration = millis == 0 ? Long.MAX_VALUE : millis * 1_000_000;
+    this.helpers = helpers;
+    this.ownsHelpers = ownsHelpers;
+  }
+
+  /**
+   * Creates a pool of helper threads, started at once so that the first search does not pay for it.
+   * They are daemon threads ending after IDLE_SECONDS without search, the pool must still be shut down by its owner.
+   * @param count number of helper threads
+   * @return the executor running the helpers
+   */
+  public static ExecutorService newHelpers(int count) {
+    if (count <= 0)
+      throw new IllegalArgumentException("count must be positive");
+    var number = new AtomicInteger();
+    var executor = new ThreadPoolExecutor(count, count, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+      var thread = new Thread(task, "mcts-worker-" + number.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    executor.prestartAllCoreThreads();
+    return executor;
+  }
+
+  /**
+   * Returns the number of playouts of the last decision, all threads included
+   * @return the number of playouts
+   */
+  public long lastPlayouts() {
+    return lastPlayouts;
+  }
+
+  /**
+   * Returns the number of playouts per second of the last decision, all threads included
+   * @return the number of playouts per second
+   */
+  public double playoutsPerSecond() {
+    return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+  }
+
+  /**
+   * Generates a string describing the last decision
+   * @return the corresponding string
+   */
+  public String report() {
+    return String.format("MCTS (%d threads) : %d playouts in %.0f ms (%.0f playouts/s)",
+                         threads, lastPlayouts, lastNanos / 1e6, playoutsPerSecond());
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    if (game.isOver())
+      throw new IllegalStateException("No legal move, the game is over");
+    var start = System.nanoTime();
+    var root = new Node(0, 0);
+    var counter = new AtomicInteger();
+    /* every copy of the game is made before a thread starts to search */
+    var workers = new Worker[threads];
+    for (var i = 0; i < threads; i++)
+      workers[i] = new Worker(game.copy(), new Random(random.nextLong()), root, counter, start);
+    var tasks = new Future<?>[threads - 1];
+    for (var i = 0; i < tasks.length; i++) {
+      var worker = workers[i + 1];
+      tasks[i] = helpers.submit(() -> {
+        if (worker.claim())
+          worker.run();
+      });
+    }
+    workers[0].run(); /* the calling thread is also a worker */
+    for (var i = 0; i < tasks.length; i++) {
+      if (workers[i + 1].claim()) /* the worker has not started and never will */
+        continue;
+      try {
+        tasks[i].get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Search interrupted", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("A worker of the search failed", e.getCause());
+      }
+    }
+    lastPlayouts = 0;
+    for (var worker : workers)
+      lastPlayouts += worker.playouts;
+    lastNanos = System.nanoTime() - start;
+
+    var children = root.children;
+    if (children == null || children.length == 0) { /* not even one iteration */
+      var candidates = new int[PlayoutPolicy.MAX_CANDIDATES];
+      new PlayoutPolicy(random).candidates(game, candidates);
+      return candidates[0];
+    }
+    var best = children[0];
+    for (var child : children) {
+      if (Node.visits(child.stats) > Node.visits(best.stats))
+        best = child;
+    }
+    return best.move;
+  }
+
+  @Override
+  public void close() {
+    if (ownsHelpers && helpers != null)
+      helpers.shutdown();
+  }
+
+  /**
+   * Search done by one thread on its own copy of the game
+   */
+  private final class Worker {
+    private final Game game;
+    private final PlayoutPolicy policy;
+    private final Node root;
+    private final AtomicInteger counter;
+    private final long start;
+    private final int[] candidates;
+    /**
+     * Set by the first thread taking the worker : its helper thread, or the calling thread once its own search is over
+     */
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private Node[] path;
+    /**
+     * Number of iterations done by this worker, read by the calling thread once its task is done
+     */
+    private long playouts;
+
+    private Worker(Game game, Random random, Node root, AtomicInteger counter, long start) {
+      this.game = game;
+      this.policy = new PlayoutPolicy(random);
+      this.root = root;
+      this.counter = counter;
+      this.start = start;
+      candidates = new int[PlayoutPolicy.MAX_CANDIDATES];
+      path = new Node[64];
+    }
+
+    /**
+     * Takes the worker, so that it is run by a helper thread or skipped by the calling thread, but not both
+     * @return true if the worker was not taken yet
+     */
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Runs iterations until the budget is spent
+     */
+    private void run() {
+      for (var count = 0;; count++) {
+        if (counter.getAndIncrement() >= iterations)
+          return;
+        if (count % CLOCK_INTERVAL == 0 && System.nanoTime() - start >= duration)
+          return;
+        iterate();
+        playouts++;
+      }
+    }
+
+    /**
+     * Runs one iteration : selection with virtual loss, expansion, playout and backpropagation
+     */
+    private void iterate() {
+      var applied = 0;
+      var node = root;
+      var depth = 0;
+      Node.STATS.getAndAdd(node, VISIT);
+      path[depth++] = node;
+      for (;;) {
+        var children = node.children;
+        if (children == null) {
+          children = expand(node);
+          if (children.length == 0)
+            break;
+          node = children[0];
+          Node.STATS.getAndAdd(node, VISIT);
+          push(depth++, node);
+          game.apply(node.move);
+          applied++;
+          break;
+        }
+        if (children.length == 0)
+          break;
+        node = select(node, children);
+        Node.STATS.getAndAdd(node, VISIT);
+        push(depth++, node);
+        game.apply(node.move);
+        applied++;
+      }
+      applied += policy.playout(game);
+      var score1 = game.player1().score();
+      var score2 = game.player2().score();
+      for (; applied > 0; applied--)
+        game.undo();
+      /* the visits have already been counted on the way down, only the results are added */
+      for (var i = 0; i < depth; i++) {
+        var visited = path[i];
+        Node.STATS.getAndAdd(visited, visited.player == 1 ? result(score1, score2) : result(score2, score1));
+      }
+    }
+
+    /**
+     * Creates the children of a node reached for the first time, or returns the ones created by another thread
+     * @param node the node, the game must be in its position
+     * @return the children of the node
+     */
+    private Node[] expand(Node node) {
+      var count = policy.candidates(game, candidates);
+      var player = game.isOver() ? 0 : game.currentPlayer().id();
+      var children = new Node[count];
+      for (var i = 0; i < count; i++)
+        children[i] = new Node(candidates[i], player);
+      if (Node.CHILDREN.compareAndSet(node, null, children))
+        return children;
+      return node.children;
+    }
+
+    /**
+     * Adds a node to the path, growing it if needed
+     * @param index index of the node
+     * @param node the node
+     */
+    private void push(int index, Node node) {
+      if (index == path.length)
+        path = Arrays.copyOf(path, path.length * 2);
+      path[index] = node;
+    }
+  }
+
+  /**
+   * Returns the result of a game for a player, doubled so that it is an integer
+   * @param score score of the player
+   * @param other score of the opponent
+   * @return 2 for a win, 1 for a draw and 0 for a loss
+   */
+  private static long result(int score, int other) {
+    return score > other ? 2 : score == other ? 1 : 0;
+  }
+
+  /**
+   * Selects the child with the best UCT value, a child never visited (virtual losses included) is selected first
+   * @param node the node
+   * @param children the children of the node
+   * @return the selected child
+   */
+  private static Node select(Node node, Node[] children) {
+    var log = Math.log(Node.visits(node.stats));
+    Node best = null;
+    var bestValue = Double.NEGATIVE_INFINITY;
+    for (var child : children) {
+      var stats = child.stats;
+      var visits = Node.visits(stats);
+      if (visits == 0)
+        return child;
+      var value = Node.wins(stats) / visits + EXPLORATION * Math.sqrt(log / visits);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+}
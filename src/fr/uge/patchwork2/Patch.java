@@ -1,25 +1,60 @@
 package fr.uge.patchwork2;
 
-import java.awt.Color;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
  * 
  * Representation of a patch
+ * 
+ * The form of the patch is a Shape (dimensions and cells packed in a long).
+ * Every distinct orientation (flip and mirror) of the patch is computed once when the patch is created,
+ * all the orientations share the same table and flipping or mirroring a patch is only a lookup in that table.
+ * Two patches are equal if they have the same shape, buttons, price and time : the color is only used to draw them.
  * @author Gabriel Radoniaina / Hervé Nguyen
- * @param buttons buttons contained on the patch
- * @param price price of the patch (in buttons)
- * @param time time value related to the patch
- * @param form form of the patch
- * @param sizeX horizontal size of the form array
- * @param sizeY vertical size of the form array
- * @param color color of the patch
  *
  */
-public record Patch(int buttons, int price, int time, boolean[][] form, int sizeX, int sizeY, Color color) {
+public final class Patch {
+  /**
+   * buttons contained on the patch
+   */
+  private final int buttons;
+  /**
+   * price of the patch (in buttons)
+   */
+  private final int price;
+  /**
+   * time value related to the patch
+   */
+  private final int time;
+  /**
+   * shape of the patch
+   */
+  private final Shape shape;
+  /**
+   * color of the patch, packed as 0xRRGGBB (the drawing layer converts it)
+   */
+  private final int color;
+  /**
+   * form of the patch packed in the quilt board format (see BitBoard)
+   */
+  private final long mask;
+  /**
+   * distinct orientations of the patch, shared by all of them
+   */
+  private final Patch[] orientations;
+  /**
+   * index of this patch in orientations
+   */
+  private final int orientation;
+  /**
+   * index of the orientation obtained after each transformation (flip 0, flip 1, mirror 0, mirror 1)
+   * from each orientation, shared by all the orientations
+   */
+  private final byte[] transitions;
   
   /**
-   * Initializes a Patch based on given values.
+   * Initializes a Patch based on given values and computes all its distinct orientations.
    * This constructor shall not be used outside of this class
    * to get a new Patch object, static methods like `cube1` should be used.
    * @param buttons buttons contained on the patch
@@ -28,99 +63,228 @@ public record Patch(int buttons, int price, int time, boolean[][] form, int size
    * @param form form of the patch
    * @param sizeX horizontal size of the form array
    * @param sizeY vertical size of the form array
-   * @param color color of the patch
+   * @param color color of the patch, packed as 0xRRGGBB
    */   
-  public Patch {
-    Objects.requireNonNull(form);
-    Objects.requireNonNull(color);
-    if (sizeX <= 0)
-      throw new IllegalArgumentException("sizeX <= 0");
-    if (sizeY <= 0)
-      throw new IllegalArgumentException("sizeY <= 0");
+  public Patch(int buttons, int price, int time, boolean[][] form, int sizeX, int sizeY, int color) {
+    this(buttons, price, time, Shape.of(form, sizeX, sizeY), color);
+  }
+  
+  /**
+   * Initializes a Patch of the given shape and computes all its distinct orientations.
+   * @param buttons buttons contained on the patch
+   * @param price price of the patch (in buttons)
+   * @param time time value related to the patch
+   * @param shape shape of the patch
+   * @param color color of the patch, packed as 0xRRGGBB
+   */
+  public Patch(int buttons, int price, int time, Shape shape, int color) {
+    Objects.requireNonNull(shape);
+    if ((color & ~0xFFFFFF) != 0)
+      throw new IllegalArgumentException("color is not a 0xRRGGBB value");
     if (time < 0)
       throw new IllegalArgumentException("time < 0");
     if (price < 0)
       throw new IllegalArgumentException("price < 0");
     if (buttons < 0)
       throw new IllegalArgumentException("button < 0");
+    this.buttons = buttons;
+    this.price = price;
+    this.time = time;
+    this.shape = shape;
+    this.color = color;
+    this.mask = shape.mask();
+    
+    var shapes = new Shape[8];
+    var table = new byte[8 * 4];
+    shapes[0] = shape;
+    var count = buildOrientations(shapes, table);
+    this.orientations = new Patch[count];
+    this.orientation = 0;
+    this.transitions = Arrays.copyOf(table, count * 4);
+    orientations[0] = this;
+    for (var i = 1; i < count; i++) {
+      orientations[i] = new Patch(this, shapes[i], i);
+    }
   }
   
   /**
-   * Flips an array of boolean according to the given parameters
-   * @param form array of booleans representing the form of the patch
-   * @param sizeX horizontal size of the array
-   * @param sizeY vertical size of the array
-   * @param type flip type (0 or 1, defines the flip direction)
-   * @return
+   * Initializes another orientation of an existing patch, sharing its orientation table
+   * @param base the patch that built the orientation table
+   * @param shape shape of the new orientation
+   * @param orientation index of the new orientation in the table
    */
-  private static boolean[][] flipArray(boolean[][] form, int sizeX, int sizeY, int type) {
-    Objects.requireNonNull(form);
-    if (type != 0 && type != 1)
-      throw new IllegalArgumentException("Unknown flip type");
-    
-    // flipping the former array
-    var newBoard = new boolean[sizeX][sizeY];
-    for(var i= 0; i < sizeX; i++) {
-        for(var j = 0; j < sizeY; j++){
-            if (type == 0)
-              newBoard[i][j] = form[sizeY-1-j][i];
-            else
-              newBoard[i][j] = form[j][sizeX-i-1];
+  private Patch(Patch base, Shape shape, int orientation) {
+    this.buttons = base.buttons;
+    this.price = base.price;
+    this.time = base.time;
+    this.shape = shape;
+    this.color = base.color;
+    this.mask = shape.mask();
+    this.orientations = base.orientations;
+    this.orientation = orientation;
+    this.transitions = base.transitions;
+  }
+  
+  /**
+   * Computes the distinct orientations of a shape by applying every flip and mirror to every orientation found.
+   * @param shapes shapes of the orientations, the first one must be filled with the original shape
+   * @param table filled with the index of the orientation obtained after each transformation
+   * (flip 0, flip 1, mirror 0, mirror 1) from each orientation
+   * @return the number of distinct orientations
+   */
+  private static int buildOrientations(Shape[] shapes, byte[] table) {
+    var count = 1;
+    for (var current = 0; current < count; current++) {
+      for (var op = 0; op < 4; op++) {
+        var type = op & 1;
+        var newShape = op < 2 ? shapes[current].flip(type) : shapes[current].mirror(type);
+        var index = findOrientation(shapes, count, newShape);
+        if (index == -1) {
+          index = count++;
+          shapes[index] = newShape;
         }
+        table[current * 4 + op] = (byte) index;
+      }
     }
-    return newBoard;
+    return count;
   }
   
+  /**
+   * Searches a shape among the first orientations already found
+   * @param shapes shapes of the orientations
+   * @param count number of orientations already found
+   * @param shape the searched shape
+   * @return the index of the orientation or -1 if it has not been found yet
+   */
+  private static int findOrientation(Shape[] shapes, int count, Shape shape) {
+    for (var i = 0; i < count; i++) {
+      if (shapes[i].equals(shape))
+        return i;
+    }
+    return -1;
+  }
+  
+  /**
+   * getter for the buttons field
+   * @return buttons contained on the patch
+   */
+  public int buttons() {
+    return buttons;
+  }
+  
+  /**
+   * getter for the price field
+   * @return price of the patch (in buttons)
+   */
+  public int price() {
+    return price;
+  }
   
   /**
-   * Flips the current patch
+   * getter for the time field
+   * @return time value related to the patch
+   */
+  public int time() {
+    return time;
+  }
+  
+  /**
+   * getter for the shape field
+   * @return shape of the patch
+   */
+  public Shape shape() {
+    return shape;
+  }
+  
+  /**
+   * Returns the form of the patch as an array of booleans
+   * @return a new array, form[y][x] is true if the cell (x, y) is covered
+   */
+  public boolean[][] form() {
+    return shape.form();
+  }
+  
+  /**
+   * Returns the horizontal size of the patch
+   * @return horizontal size of the shape
+   */
+  public int sizeX() {
+    return shape.sizeX();
+  }
+  
+  /**
+   * Returns the vertical size of the patch
+   * @return vertical size of the shape
+   */
+  public int sizeY() {
+    return shape.sizeY();
+  }
+  
+  /**
+   * getter for the color field
+   * @return color of the patch, packed as 0xRRGGBB
+   */
+  public int color() {
+    return color;
+  }
+  
+  /**
+   * getter for the mask field
+   * @return form of the patch packed in the quilt board format (see BitBoard)
+   */
+  public long mask() {
+    return mask;
+  }
+  
+  /**
+   * Returns the index of this orientation among the distinct orientations of the patch
+   * @return the aforementioned index
+   */
+  public int orientation() {
+    return orientation;
+  }
+  
+  /**
+   * Returns the number of distinct orientations of the patch (1 for a cube, 2 for a bar, up to 8)
+   * @return the number of orientations
+   */
+  public int orientationCount() {
+    return orientations.length;
+  }
+  
+  /**
+   * Returns the orientation of the patch at the given index
+   * @param index index of the orientation, between 0 and orientationCount() - 1
+   * @return the corresponding orientation of the patch
+   */
+  public Patch orientation(int index) {
+    if (index < 0 || index >= orientations.length)
+      throw new IllegalArgumentException("Unknown orientation");
+    return orientations[index];
+  }
+  
+  /**
+   * Flips the current patch (lookup in the orientation table, no new patch is created)
    * @param type nature of the flip (left = 0, right = 1)
-   * @return the newly flipped patch
+   * @return the flipped patch
    */
   public Patch flip(int type) {
     if (type != 0 && type != 1)
       throw new IllegalArgumentException("Unknown flip type");
     
-    var newForm = flipArray(form, sizeX, sizeY, type);
-    
-    return new Patch(buttons, price, time, newForm, sizeY, sizeX, color);
+    return orientations[transitions[orientation * 4 + type]];
   }
 
   /**
-   * Mirrors an array of boolean according to the given parameters (axial symmetry)
-   * @param form array of booleans representing the form of the patch
-   * @param sizeX horizontal size of the array
-   * @param sizeY vertical size of the array
-   * @param type flip type (0 = horizontal, 1 = vertical)
-   * @return
-   */
-  private static boolean[][] mirrorArray(boolean[][] form, int sizeX, int sizeY, int type){
-    if (type != 0 && type != 1)
-      throw new IllegalArgumentException("Unknown mirror type");
-    var newBoard = new boolean[sizeY][sizeX];
-    for(var i= 0; i < sizeY; i++) {
-      for(var j = 0; j < sizeX; j++){
-          if (type == 0)
-            newBoard[i][j] = form[i][sizeX-1-j];
-          else
-            newBoard[i][j] = form[sizeY - 1 - i][j];
-      }
-    }
-    return newBoard;
-  }
-
-  /**
-   * Mirrors the current patch
+   * Mirrors the current patch (lookup in the orientation table, no new patch is created)
    * @param type nature of the flip (0 = horizontal, 1 = vertical)
-   * @return the newly flipped patch
+   * @return the mirrored patch
    */
   public Patch mirror(int type) {
     if (type != 0 && type != 1)
       throw new IllegalArgumentException("Unknown mirror type");
     
-    var newForm = mirrorArray(form, sizeX, sizeY, type);
-    
-    return new Patch(buttons, price, time, newForm, sizeX, sizeY, color);
+    return orientations[transitions[orientation * 4 + 2 + type]];
   }
   
   /**
@@ -129,15 +293,11 @@ public record Patch(int buttons, int price, int time, boolean[][] form, int size
    * @param buttons number of buttons on the patch
    * @param price price of the patch
    * @param time time value of the patch
-   * @param color color of the patch
+   * @param color color of the patch, packed as 0xRRGGBB
    * @return the newly created patch
    */
-  private static Patch cube(int size, int buttons, int price, int time, Color color) {
-    var form = new boolean[size][size];
-    for (var i = 0; i < size; i++)
-      for (var j = 0; j < size; j++)
-        form[i][j] = true;
-    return new Patch(buttons, price, time, form, size, size, color);
+  private static Patch cube(int size, int buttons, int price, int time, int color) {
+    return new Patch(buttons, price, time, Shape.rectangle(size, size), color);
   }
   
   /**
@@ -146,7 +306,7 @@ public record Patch(int buttons, int price, int time, boolean[][] form, int size
    */
   public static Patch specialPatch() {
     /* Brown special patch */
-    return cube(1, 0, 0, 0, new Color(102, 51, 0));
+    return cube(1, 0, 0, 0, 0x663300);
   }
   
   /**
@@ -154,7 +314,8 @@ public record Patch(int buttons, int price, int time, boolean[][] form, int size
    * @return the created patch
    */
   public static Patch cubeBasic1() {
-    return cube(2, 1, 3, 4, Color.ORANGE);
+    /* Orange */
+    return cube(2, 1, 3, 4, 0xFFC800);
   }
   
   /**
@@ -163,7 +324,20 @@ public record Patch(int buttons, int price, int time, boolean[][] form, int size
    */
   public static Patch cubeBasic2() {
     /* Gold */
-    return cube(2, 0, 2, 2, new Color(255, 204, 51));
+    return cube(2, 0, 2, 2, 0xFFCC33);
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Patch patch
+        && buttons == patch.buttons
+        && price == patch.price
+        && time == patch.time
+        && shape.equals(patch.shape);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(buttons, price, time, shape);
+  }
 }
@@ -1,6 +1,5 @@
 package fr.uge.patchwork2;
 
-import java.awt.Color;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -13,20 +12,74 @@ import java.util.Random;
 
 /**
  * Represent the patches available during the game on a circle
+ * 
+ * The patches are stored in a fixed array in the order of the circle, the patches still in the circle
+ * are a bitmask of that array and the neutral token is a cursor on the first patch in front of it.
+ * Choosing a patch and copying or restoring the state of the circle do not move any patch in memory.
  * @author Gabriel Radoniaina / Hervé Nguyen
  *
  */
 public class PatchCircle {
   /**
-   * List of patches in the patch circle
+   * Maximum number of patches in a patch circle (size of the bitmask)
    */
-  private final List<Patch> patch;
+  public static final int MAX_SIZE = Long.SIZE;
+  /**
+   * Patches of the circle, in the order of the circle (never modified)
+   */
+  private final Patch[] patch;
+  /**
+   * Bitmask of the indexes of the patches still in the circle
+   */
+  private long remaining;
+  /**
+   * Index of the first patch in front of the neutral token
+   */
+  private int cursor;
+  /**
+   * Zobrist keys of the patches of the circle, for each index of the patch array (never modified)
+   */
+  private final long[] keys;
+  /**
+   * Zobrist hash of the patches still in the circle and of the neutral token (see Zobrist)
+   */
+  private long hash;
   
   /**
    * Constructor for PatchCircle
+   * @param patches patches of the circle, in order (the first one is in front of the neutral token)
    */
-  public PatchCircle() {
-    patch = new ArrayList<>();
+  public PatchCircle(List<Patch> patches) {
+    Objects.requireNonNull(patches);
+    if (patches.size() > MAX_SIZE)
+      throw new IllegalArgumentException("too many patches for a patch circle");
+    patch = patches.toArray(new Patch[0]);
+    for (var p : patch)
+      Objects.requireNonNull(p);
+    remaining = patch.length == MAX_SIZE ? -1L : (1L << patch.length) - 1;
+    cursor = 0;
+    keys = new long[patch.length];
+    hash = Zobrist.cursor(cursor);
+    for (var i = 0; i < patch.length; i++) {
+      keys[i] = Zobrist.patch(i, patch[i]);
+      hash ^= keys[i];
+    }
+  }
+  
+  /**
+   * Constructor used to copy a PatchCircle, the arrays of patches and keys are shared since they are never modified
+   * @param patch patches of the circle
+   * @param keys Zobrist keys of the patches
+   * @param remaining bitmask of the patches still in the circle
+   * @param cursor index of the first patch in front of the neutral token
+   * @param hash Zobrist hash of the circle
+   */
+  private PatchCircle(Patch[] patch, long[] keys, long remaining, int cursor, long hash) {
+    this.patch = patch;
+    this.keys = keys;
+    this.remaining = remaining;
+    this.cursor = cursor;
+    this.hash = hash;
   }
   
   /**
@@ -34,48 +87,152 @@ public class PatchCircle {
    * @return The size of the PatchCircle
    */
   public int size() {
-    return patch.size();
+    return Long.bitCount(remaining);
   }
   
   
   /**
-   * Getter for field patch
-   * @return The field patch, which is a list of Patch
+   * Returns the patches of the circle, starting from the one in front of the neutral token.
+   * The list is a copy, modifying it does not modify the circle.
+   * @return a list of Patch
    */
   public List<Patch> getPatch() {
-    return patch;
+    var list = new ArrayList<Patch>(size());
+    for (var i = 0; i < size(); i++) {
+      list.add(get(i));
+    }
+    return list;
   }
-
+  
+  /**
+   * Returns the patch at the given position in front of the neutral token, nothing is allocated
+   * @param index position of the patch (0 is the first patch in front of the neutral token)
+   * @return the corresponding patch
+   */
+  public Patch get(int index) {
+    return patch[slot(index)];
+  }
+  
+  /**
+   * Returns the index in the patch array of the patch at the given position in front of the neutral token
+   * @param index position of the patch (0 is the first patch in front of the neutral token)
+   * @return the index in the patch array
+   */
+  private int slot(int index) {
+    if (index < 0 || index >= size())
+      throw new IllegalArgumentException("no patch at this index");
+    var slot = cursor;
+    for (var i = 0; i < index; i++) {
+      slot = nextSlot(slot + 1);
+    }
+    return slot;
+  }
+  
+  /**
+   * Returns the index of the first patch still in the circle starting from the given index in the patch array
+   * @param from index in the patch array (can be the length of the array, the search then starts at 0)
+   * @return index of the patch
+   */
+  private int nextSlot(int from) {
+    var after = from < MAX_SIZE ? remaining & (-1L << from) : 0L;
+    return Long.numberOfTrailingZeros(after != 0 ? after : remaining);
+  }
+  
+  /**
+   * Returns the patch at the given index of the original order of the circle, whether it is still in the circle or not
+   * @param slot index in the original order of the circle (see remaining)
+   * @return the corresponding patch
+   */
+  public Patch patchInSlot(int slot) {
+    Objects.checkIndex(slot, patch.length);
+    return patch[slot];
+  }
+  
+  /**
+   * Returns the number of squares of the smallest patch still in the circle, nothing is allocated
+   * @return the aforementioned number (0 if the circle is empty)
+   */
+  public int smallestPatch() {
+    var min = remaining == 0 ? 0 : Integer.MAX_VALUE;
+    for (var bits = remaining; bits != 0; bits &= bits - 1)
+      min = Math.min(min, Long.bitCount(patch[Long.numberOfTrailingZeros(bits)].mask()));
+    return min;
+  }
+  
+  /**
+   * Getter for the bitmask of the patches still in the circle (indexes in the original order of the circle)
+   * @return the aforementioned bitmask
+   */
+  public long remaining() {
+    return remaining;
+  }
+  
   /**
-   * Adds a patch to the PatchCircle
-   * @param p patch to be added
+   * Getter for the index (in the original order of the circle) of the first patch in front of the neutral token
+   * @return the aforementioned index
    */
-  private void addPatch(Patch p) {
-    Objects.requireNonNull(p);
-    patch.add(p);
+  public int cursor() {
+    return cursor;
   }
   
   /**
-   * Picks a patch among the first three in the circle (compared to the neutral token at index 0) and returns it.
-   * If the second or third patch is chosen, the patches that are now behind the neutral token will be send at the back of the List.
+   * Restores a state of the circle previously obtained with remaining() and cursor()
+   * @param remaining bitmask of the patches still in the circle
+   * @param cursor index of the first patch in front of the neutral token
+   */
+  public void restore(long remaining, int cursor) {
+    if (patch.length < MAX_SIZE && (remaining >>> patch.length) != 0)
+      throw new IllegalArgumentException("remaining contains unknown patches");
+    if (remaining != 0 && (remaining & (1L << cursor)) == 0)
+      throw new IllegalArgumentException("cursor is not on a remaining patch");
+    /* only the patches whose presence changes are xored, usually a single one */
+    for (var changed = this.remaining ^ remaining; changed != 0; changed &= changed - 1)
+      hash ^= keys[Long.numberOfTrailingZeros(changed)];
+    hash ^= Zobrist.cursor(this.cursor);
+    this.remaining = remaining;
+    this.cursor = remaining == 0 ? 0 : cursor;
+    hash ^= Zobrist.cursor(this.cursor);
+  }
+  
+  /**
+   * Returns the Zobrist hash of the circle (order of the patches still in the circle and neutral token),
+   * kept up to date by every method modifying the circle
+   * @return the hash
+   */
+  public long hash() {
+    return hash;
+  }
+  
+  /**
+   * Creates a copy of the circle, the copy and the original evolve independently
+   * @return the copy
+   */
+  public PatchCircle copy() {
+    return new PatchCircle(patch, keys, remaining, cursor, hash);
+  }
+  
+  /**
+   * Picks a patch among the first three in the circle (compared to the neutral token) and returns it.
+   * The neutral token is moved to the place of the chosen patch : the patches that were before it are now at the back of the circle.
    * @param patchIndex index of the patch to be chosen
    * @return That Patch
    */
   public Patch choosePatch(int patchIndex) {
-    if (patch.size() == 0)
+    if (remaining == 0)
       throw new IllegalStateException("PatchCircle is empty");
     if (patchIndex < 0)
       throw new IllegalArgumentException("patchIndex negative");
     if (patchIndex > 2)
       throw new IllegalArgumentException("patchIndex > 2, must be between 0 and 2");
-    if (patchIndex >= patch.size())
+    if (patchIndex >= size())
       throw new IllegalStateException("Trying to chose a non existant patch");
     
-    var selectedPatch = patch.remove(patchIndex);
-    for (var i = 0; i < patchIndex; i++) {
-      patch.add(patch.remove(0));
-    }
-    return selectedPatch;
+    var slot = slot(patchIndex);
+    remaining &= ~(1L << slot);
+    hash ^= keys[slot] ^ Zobrist.cursor(cursor);
+    cursor = remaining == 0 ? 0 : nextSlot(slot + 1);
+    hash ^= Zobrist.cursor(cursor);
+    return patch[slot];
   }
   
   /**
@@ -86,13 +243,14 @@ public class PatchCircle {
    * @return the patch chosen which is now removed from the patchcircle
    */
   public Patch choosePatch(Patch chosen) {
-    Objects.requireNonNull(patch);
-    if (patch.isEmpty())
+    Objects.requireNonNull(chosen);
+    if (remaining == 0)
       throw new IllegalStateException("Chose a patch from an empty patch circle");
-    if (!this.getTrio(1).contains(chosen)) /* Get the first 3 patch */
-      throw new IllegalStateException("Chosen patch does not belong to the available patches to choose");
-    patch.remove(chosen);
-    return chosen;
+    for (var i = 0; i < 3 && i < size(); i++) {
+      if (get(i) == chosen)
+        return choosePatch(i);
+    }
+    throw new IllegalStateException("Chosen patch does not belong to the available patches to choose");
   }
   
   /**
@@ -106,16 +264,16 @@ public class PatchCircle {
    */
   public boolean choiceIsValid(int patchIndex, int buttonCount) {
     
-    if (patch.size() == 0)
+    if (remaining == 0)
       return false;
     if (buttonCount < 0)
       throw new IllegalArgumentException("buttonCount cannot be negative");
     if (patchIndex == 3)
       return true;
-    if (patchIndex < 0 || patchIndex > 3 || patchIndex >= patch.size() || buttonCount == 0)
+    if (patchIndex < 0 || patchIndex > 3 || patchIndex >= size() || buttonCount == 0)
       return false;
     
-    var selectedPatch = patch.get(patchIndex);
+    var selectedPatch = get(patchIndex);
     if (selectedPatch.price() > buttonCount)
       return false;
     
@@ -127,22 +285,58 @@ public class PatchCircle {
    * @return PatchCircle the newly created PatchCircle
    */
   public static PatchCircle newPatchCircleBasic() {
-    var patchcircle = new PatchCircle();
+    return newPatchCircleBasic(new Random());
+  }
+
+  /**
+   * Creates and returns the PatchCircle for the basic version, shuffled with the given random generator
+   * @param random random generator used to shuffle the patches (a seeded one gives a reproducible circle)
+   * @return PatchCircle the newly created PatchCircle
+   */
+  public static PatchCircle newPatchCircleBasic(Random random) {
+    Objects.requireNonNull(random);
+    var patches = new ArrayList<Patch>();
     for (var i = 0; i < 20; i++) {
-      patchcircle.addPatch(Patch.cubeBasic1());
-      patchcircle.addPatch(Patch.cubeBasic2());
+      patches.add(Patch.cubeBasic1());
+      patches.add(Patch.cubeBasic2());
     }
-    Collections.shuffle(patchcircle.getPatch());
-    return patchcircle;
+    Collections.shuffle(patches, random);
+    return new PatchCircle(patches);
   }
 
   /**
-   * Tries to build the patchcircle while reading a configuration file
+   * Patches of the full version, read from the configuration file the first time they are needed.
+   * Patches are immutable so every game shares them (the initialization is thread safe).
+   */
+  private static class FullPatches {
+    /**
+     * The patches, or null if the configuration file could not be read
+     */
+    private static final List<Patch> PATCHES = load();
+
+    /**
+     * Reads the patches from the configuration file
+     * @return the list of patches or null if the file could not be read
+     */
+    private static List<Patch> load() {
+      try {
+        return List.copyOf(buildPatchByFile(FileSystems.getDefault().getPath("ressource/patches")));
+      } catch(IOException e) { /* fallback option */
+        System.out.println("Error reading file, now using backup patchcircle");
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Tries to read the patches from a configuration file
    * @param path the path to the configuration file (usually located in the ressource folder)
+   * @return the list of patches described in the file
    * @throws IOException (if the file is not present or other IO related issues)
    */
-  private void buildPatchByFile(Path path) throws IOException {
+  private static List<Patch> buildPatchByFile(Path path) throws IOException {
     var rand = new Random();
+    var patches = new ArrayList<Patch>();
     try(var reader = Files.newBufferedReader(path)) {
       String line; String[] patchCharacteristic;
       while((line = reader.readLine()) != null) {
@@ -158,13 +352,11 @@ public class PatchCircle {
             form[i][j] = patchCharacteristic[5 + i * sizeX + j].equals("0") ? false : true;
           }
         }
-        patch.add(new Patch(button, price, time, form, sizeX, sizeY, new Color(rand.nextInt(50, 255),
-                                                                               rand.nextInt(50, 255),
-                                                                               rand.nextInt(50, 255))
-                           )
-        );
+        var color = rand.nextInt(50, 255) << 16 | rand.nextInt(50, 255) << 8 | rand.nextInt(50, 255);
+        patches.add(new Patch(button, price, time, form, sizeX, sizeY, color));
       }
     }
+    return patches;
   }
   
   /**
@@ -172,15 +364,23 @@ public class PatchCircle {
    * @return PatchCircle the newly created PatchCircle
    */
   public static PatchCircle newPatchCircleFull() {
-    var patchcircle = new PatchCircle();
-    try {
-      patchcircle.buildPatchByFile(FileSystems.getDefault().getPath("ressource/patches"));
-    } catch(IOException e) { /* fallback option */
-      System.out.println("Error reading file, now using backup patchcircle");
-      return newPatchCircleBasic();
-    }
-    Collections.shuffle(patchcircle.getPatch());
-    return patchcircle;
+    return newPatchCircleFull(new Random());
+  }
+
+  /**
+   * Creates and returns the PatchCircle for the full version, shuffled with the given random generator
+   * (has a fallback alternative if the configuration file cannot be read).
+   * The configuration file is only read once, the following circles reuse the same patches.
+   * @param random random generator used to shuffle the patches (a seeded one gives a reproducible circle)
+   * @return PatchCircle the newly created PatchCircle
+   */
+  public static PatchCircle newPatchCircleFull(Random random) {
+    Objects.requireNonNull(random);
+    if (FullPatches.PATCHES == null)
+      return newPatchCircleBasic(random);
+    var patches = new ArrayList<Patch>(FullPatches.PATCHES);
+    Collections.shuffle(patches, random);
+    return new PatchCircle(patches);
   }
   
   /**
@@ -191,6 +391,8 @@ public class PatchCircle {
    * since it will also include the trailing "trio" of the patch circle. (where a trio is incomplete)
    * 
    * If the nth trio does not exist, an empty array will be returned
+   * 
+   * get(int) should be preferred to look at the first three patches without allocating a list.
    *
    * @param n nth trio
    * @return the list of the patch of that nth trio.
@@ -199,13 +401,16 @@ public class PatchCircle {
     if (n <= 0)
       throw new IllegalArgumentException("0th trio or negative-th trio is not possible");
     var trio = new ArrayList<Patch>();
+    var size = size();
     
     /* Empty list if the nth trio asked is beyond what is avaialble in the patchcircle */
-    if (patch.size() <= ((n-1) * 3))
+    if (size <= ((n-1) * 3))
       return trio;
     
-    for (var i = 0; i < 3 && ((n-1) * 3 + i) < patch.size(); i++) {
-      trio.add(patch.get((n-1) * 3 + i));
+    var slot = slot((n-1) * 3);
+    for (var i = 0; i < 3 && ((n-1) * 3 + i) < size; i++) {
+      trio.add(patch[slot]);
+      slot = nextSlot(slot + 1);
     }
     return trio;
     
@@ -1,24 +1,62 @@
 package fr.uge.patchwork2;
 
-import java.awt.Point;
 import java.util.Objects;
 
 /**
  * 
  * Represents a Patch placed on a quilt board
  * @param patch Patch
- * @param anchor Anchor point for the placed Patch
+ * @param anchor Anchor square for the placed Patch, packed as y * 9 + x (see BitBoard)
  * @author Gabriel Radoniaina / Hervé Nguyen
  *
  */
-public record PatchPlaced(Patch patch, Point anchor) {
+public record PatchPlaced(Patch patch, int anchor) {
  /**
   * Constructor for PatchPlaced
   * @param patch Patch
-  * @param anchor Anchor point for the placed Patch
+  * @param anchor Anchor square for the placed Patch, packed as y * 9 + x
   */
   public PatchPlaced {
     Objects.requireNonNull(patch, "Patch patch cannot be null");
-    Objects.requireNonNull(anchor, "Point anchor cannot be null");
+    if (anchor < 0 || anchor >= BitBoard.SQUARES)
+      throw new IllegalArgumentException("anchor out of the quilt board");
+  }
+
+  /**
+   * Constructor for PatchPlaced from the coordinates of the anchor
+   * @param patch Patch
+   * @param x x coordinate of the anchor square
+   * @param y y coordinate of the anchor square
+   */
+  public PatchPlaced(Patch patch, int x, int y) {
+    this(patch, index(x, y));
+  }
+
+  /**
+   * Returns the x coordinate of the anchor square
+   * @return the x coordinate
+   */
+  public int x() {
+    return anchor % BitBoard.WIDTH;
+  }
+
+  /**
+   * Returns the y coordinate of the anchor square
+   * @return the y coordinate
+   */
+  public int y() {
+    return anchor / BitBoard.WIDTH;
+  }
+
+  /**
+   * Packs the coordinates of an anchor square
+   * @param x x coordinate of the anchor square
+   * @param y y coordinate of the anchor square
+   * @return the packed anchor
+   */
+  private static int index(int x, int y) {
+    if (x < 0 || x >= BitBoard.WIDTH || y < 0 || y >= BitBoard.WIDTH)
+      throw new IllegalArgumentException("anchor out of the quilt board");
+    return BitBoard.index(x, y);
   }
 }
@@ -0,0 +1,120 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+
+/**
+ * Chooses where to place a patch so that the empty space of the quilt board stays easy to fill.
+ *
+ * Every legal placement of every orientation is scored on the empty squares left after it (see score) :
+ * the more pairs of adjacent empty squares, the more compact the empty space (a patch placed against the border
+ * or against other patches keeps more of them), and each isolated empty square, that only a special patch can fill,
+ * is penalized. Ties are broken by the smallest anchor, then by the smallest orientation.
+ * Only the placements touching the border or a patch are scored : they keep more pairs than a placement
+ * surrounded by empty squares, and sliding any legal placement leads to one of them.
+ * A placement leaving an empty region smaller than a given size (usually the smallest patch still in the circle,
+ * see QuiltBoard.leavesRegionSmallerThan) is only chosen if every placement does.
+ * Everything is computed on the two longs of the quilt board (see BitBoard) without any allocation,
+ * so that it can be used in every move of a playout.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class PlacementPolicy {
+  /**
+   * Penalty of an isolated empty square, in pairs of adjacent empty squares
+   */
+  private static final int ISOLATED_PENALTY = 4;
+  /**
+   * Special patch, patches are immutable so a single instance is shared
+   */
+  private static final Patch SPECIAL_PATCH = Patch.specialPatch();
+
+  /**
+   * Scores the empty space of a quilt board
+   * @param low occupied squares 0 to 63
+   * @param high occupied squares 64 to 80
+   * @return the pairs of adjacent empty squares minus the penalty of the isolated empty squares
+   */
+  public static int score(long low, long high) {
+    var emptyLow = ~low;
+    var emptyHigh = ~high & BitBoard.HIGH_MASK;
+    return BitBoard.adjacentPairs(emptyLow, emptyHigh) - ISOLATED_PENALTY * BitBoard.isolated(emptyLow, emptyHigh);
+  }
+
+  /**
+   * Chooses the best placement of a patch
+   * @param quiltboard the quilt board
+   * @param patch the patch
+   * @param patchIndex index of the patch in front of the neutral token
+   * @param anchors buffer of the legal anchors (see QuiltBoard.legalPlacements), of length 16 at least
+   * @return the encoded BUY move of the best placement, -1 if the patch cannot be placed
+   */
+  public static int best(QuiltBoard quiltboard, Patch patch, int patchIndex, long[] anchors) {
+    return best(quiltboard, patch, patchIndex, anchors, 0);
+  }
+
+  /**
+   * Chooses the best placement of a patch, avoiding the placements that leave empty regions too small to be filled
+   * @param quiltboard the quilt board
+   * @param patch the patch
+   * @param patchIndex index of the patch in front of the neutral token
+   * @param anchors buffer of the legal anchors (see QuiltBoard.legalPlacements), of length 16 at least
+   * @param minRegion size of the smallest empty region a placement should leave
+   * @return the encoded BUY move of the best placement, -1 if the patch cannot be placed
+   */
+  public static int best(QuiltBoard quiltboard, Patch patch, int patchIndex, long[] anchors, int minRegion) {
+    Objects.requireNonNull(quiltboard);
+    Objects.requireNonNull(patch);
+    if (quiltboard.legalPlacements(patch, anchors) == 0)
+      return -1;
+    var low = quiltboard.low();
+    var high = quiltboard.high();
+    var emptyLow = ~low;
+    var emptyHigh = ~high & BitBoard.HIGH_MASK;
+    /* squares on the border or next to an occupied square : a placement has to cover one of them */
+    var contactLow = ~BitBoard.surroundedLow(emptyLow, emptyHigh);
+    var contactHigh = ~BitBoard.surroundedHigh(emptyLow, emptyHigh);
+    var best = -1;
+    var bestScore = Integer.MIN_VALUE;
+    var fallback = -1;
+    var fallbackScore = Integer.MIN_VALUE;
+    for (var o = 0; o < patch.orientationCount(); o++) {
+      var mask = patch.orientation(o).mask();
+      for (var part = 0; part < 2; part++) {
+        for (var bits = anchors[2 * o + part]; bits != 0; bits &= bits - 1) {
+          var anchor = part * Long.SIZE + Long.numberOfTrailingZeros(bits);
+          var shiftedLow = BitBoard.shiftLow(mask, anchor);
+          var shiftedHigh = BitBoard.shiftHigh(mask, anchor);
+          if (((shiftedLow & contactLow) | (shiftedHigh & contactHigh)) == 0)
+            continue;
+          var score = score(low | shiftedLow, high | shiftedHigh);
+          if (score < bestScore || (score == bestScore && anchor >= Move.anchor(best)))
+            continue;
+          /* the regions are only split for the placements that would become the best */
+          if (minRegion > 1 && quiltboard.leavesRegionSmallerThan(shiftedLow, shiftedHigh, minRegion)) {
+            if (score > fallbackScore) {
+              fallbackScore = score;
+              fallback = Move.encode(Move.BUY, patchIndex, o, anchor);
+            }
+            continue;
+          }
+          bestScore = score;
+          best = Move.encode(Move.BUY, patchIndex, o, anchor);
+        }
+      }
+    }
+    return best >= 0 ? best : fallback;
+  }
+
+  /**
+   * Chooses the best square for a special patch
+   * @param quiltboard the quilt board, with at least one empty square
+   * @param anchors buffer of the legal anchors (see QuiltBoard.legalPlacements), of length 2 at least
+   * @return the encoded SPECIAL move
+   */
+  public static int bestSpecial(QuiltBoard quiltboard, long[] anchors) {
+    var best = best(quiltboard, SPECIAL_PATCH, 0, anchors);
+    if (best < 0)
+      throw new IllegalArgumentException("the quilt board is full");
+    return Move.encode(Move.SPECIAL, 0, 0, Move.anchor(best));
+  }
+}
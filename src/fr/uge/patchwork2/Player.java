@@ -40,6 +40,11 @@ public class Player {
    */
   private int specialPatches;
   
+  /**
+   * hash Zobrist hash of the fields of the player, the quilt board excepted (see Zobrist)
+   */
+  private long hash;
+  
   /**
    * getter for button field
    * @return the button field
@@ -120,6 +125,7 @@ public class Player {
     this.finished = finished;
     this.id = id;
     this.specialTile = false;
+    this.hash = fieldsHash();
   }
   
   /**
@@ -144,6 +150,7 @@ public class Player {
 	public void updateButton(int newButton) {
 	  if (newButton < 0)
 	    throw new IllegalArgumentException("Player cannot be in debt");
+	  hash ^= Zobrist.button(button) ^ Zobrist.button(newButton);
 	  button = newButton;
 	}
 	
@@ -155,15 +162,59 @@ public class Player {
     if (newLocation < 0 || newLocation > (TimeBoard.getSIZE() - 1)) {
       throw new IllegalArgumentException("Player location out of bound in the timeboard");
     }
+    hash ^= Zobrist.location(location) ^ Zobrist.location(newLocation);
     location = newLocation;
     if (location == TimeBoard.getSIZE() - 1)
       this.finishPlayer();
   }
   
+  /**
+   * Restores every mutable field of the player, used to undo a move
+   * @param button buttons held by the player
+   * @param location position of the player on the time board
+   * @param finished true if the player cannot make any more actions, else false
+   * @param specialTile true if the player has obtained the special tile
+   * @param specialPatches number of special patches picked up by the player
+   */
+  public void restore(int button, int location, boolean finished, boolean specialTile, int specialPatches) {
+    if (button < 0)
+      throw new IllegalArgumentException("number of buttons cannot be negative");
+    if (location < 0 || location > TimeBoard.getSIZE() - 1)
+      throw new IllegalArgumentException("Player location out of bound in the timeboard");
+    if (specialPatches < 0)
+      throw new IllegalArgumentException("number of special patches cannot be negative");
+    this.button = button;
+    this.location = location;
+    this.finished = finished;
+    this.specialTile = specialTile;
+    this.specialPatches = specialPatches;
+    this.hash = fieldsHash();
+  }
+  
+  /**
+   * Computes the Zobrist hash of the fields of the player, the quilt board excepted
+   * @return the hash
+   */
+  private long fieldsHash() {
+    return Zobrist.button(button) ^ Zobrist.location(location) ^ Zobrist.specialPatches(specialPatches)
+         ^ (finished ? Zobrist.FINISHED : 0) ^ (specialTile ? Zobrist.SPECIAL_TILE : 0);
+  }
+  
+  /**
+   * Returns the Zobrist hash of the player (buttons, location, quilt board...),
+   * kept up to date by every method modifying the player or his quilt board
+   * @return the hash
+   */
+  public long hash() {
+    return hash ^ quiltboard.hash();
+  }
+  
   /**
    * Updates the player and sets it as finished
    */
   public void finishPlayer() {
+    if (!finished)
+      hash ^= Zobrist.FINISHED;
     finished = true;
   }
   
@@ -184,6 +235,7 @@ public class Player {
   
   /**
    * Calculates the score the player currently has. (number of buttons held minus the amount of empty square in the quiltboard)
+   * The quiltboard keeps its number of empty squares up to date, so this is a constant time read.
    * @return the score
    */
   public int score() {
@@ -212,6 +264,7 @@ public class Player {
     if (specialTile)
       throw new IllegalStateException("Current player already has obtaine the special tile");
     specialTile = true;
+    hash ^= Zobrist.SPECIAL_TILE;
     updateButton(button + 7);
   }
   
@@ -219,6 +272,7 @@ public class Player {
    * Makes the player "take" a special patch which increments the corresponding field
    */
   public void takeSpecialPatch() {
+    hash ^= Zobrist.specialPatches(specialPatches) ^ Zobrist.specialPatches(specialPatches + 1);
     specialPatches++;
   }
   
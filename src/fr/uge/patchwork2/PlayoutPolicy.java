@@ -0,0 +1,152 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Moves considered by the Monte Carlo Tree Search bots and moves played during their playouts.
+ *
+ * The candidates of a position are at most four : skip, or buy one of the three patches in front of the neutral token,
+ * the patch being placed where it leaves the most compact empty space without leaving an empty region smaller
+ * than the smallest patch of the circle (see PlacementPolicy). The special patches are placed by the same policy.
+ *
+ * Playouts are lightly guided : half of the moves are the candidate with the best immediate value, the others are random.
+ * The immediate value does not depend on the placement : during a playout, only the chosen patch is placed.
+ * A policy keeps buffers, an instance must only be used by one thread.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class PlayoutPolicy {
+  /**
+   * Maximum number of candidate moves in a position (skip and the three patches)
+   */
+  public static final int MAX_CANDIDATES = 4;
+
+  private final Random random;
+  private final long[] anchors;
+  private final int[] candidates;
+
+  /**
+   * Constructor for PlayoutPolicy
+   * @param random random generator used to choose the moves of the playouts
+   */
+  public PlayoutPolicy(Random random) {
+    this.random = Objects.requireNonNull(random);
+    anchors = new long[16];
+    candidates = new int[MAX_CANDIDATES];
+  }
+
+  /**
+   * Plays random moves until the end of the game
+   * @param game the game
+   * @return the number of applied moves (to undo them)
+   */
+  public int playout(Game game) {
+    var applied = 0;
+    while (!game.isOver()) {
+      game.apply(playoutMove(game));
+      applied++;
+    }
+    return applied;
+  }
+
+  /**
+   * Chooses the move of a playout : the candidate with the best immediate value half of the time, a random one otherwise
+   * @param game the game
+   * @return the encoded move
+   */
+  public int playoutMove(Game game) {
+    var count = choices(game, candidates);
+    if (Move.kind(candidates[0]) == Move.SPECIAL)
+      return candidates[0];
+    var choice = candidates[0];
+    if (count == 1 || random.nextBoolean()) {
+      choice = candidates[random.nextInt(count)];
+    } else {
+      var player = game.currentPlayer();
+      var bestValue = Integer.MIN_VALUE;
+      for (var i = 0; i < count; i++) {
+        var value = immediateValue(game, player, candidates[i]);
+        if (value > bestValue) {
+          bestValue = value;
+          choice = candidates[i];
+        }
+      }
+    }
+    return place(game, choice);
+  }
+
+  /**
+   * Estimates without applying it the value of a move for the player :
+   * buttons earned or spent, buttons the patch will earn until the end and covered squares (worth 2 points each)
+   * @param game the game
+   * @param player the current player
+   * @param move the encoded move (SKIP or BUY)
+   * @return the estimated value
+   */
+  public static int immediateValue(Game game, Player player, int move) {
+    if (Move.kind(move) == Move.SKIP)
+      return player.getTileCrossedSelectionSkip(game.currentOpponent()); /* as Game, no extra tile on the last square */
+    var patch = game.patchcircle().get(Move.patchIndex(move));
+    var last = TimeBoard.getSIZE() - 1;
+    var incomes = player.location() < last ? game.timeboard().buttonsCrossed(player.location(), last) : 0;
+    return 2 * Long.bitCount(patch.mask()) + patch.buttons() * incomes - patch.price();
+  }
+
+  /**
+   * Fills the array with the candidate moves of the current player :
+   * the placement of the next special patch, or skip and the purchase of each affordable patch that can be placed
+   * @param game the game
+   * @param moves array of length MAX_CANDIDATES at least (it must not be the internal buffer of the policy)
+   * @return the number of candidates (0 if the game is over)
+   */
+  public int candidates(Game game, int[] moves) {
+    var count = choices(game, moves);
+    for (var i = 0; i < count; i++)
+      moves[i] = place(game, moves[i]);
+    return count;
+  }
+
+  /**
+   * Fills the array with the choices of the current player : the placement of the next special patch,
+   * or skip and the purchase of each affordable patch that can be placed (encoded with the orientation 0 and the anchor 0)
+   * @param game the game
+   * @param moves array of length MAX_CANDIDATES at least
+   * @return the number of choices (0 if the game is over)
+   */
+  private int choices(Game game, int[] moves) {
+    if (game.isOver())
+      return 0;
+    var player = game.currentPlayer();
+    var quiltboard = player.quiltboard();
+    if (game.pendingSpecialPatches() > 0) {
+      moves[0] = PlacementPolicy.bestSpecial(quiltboard, anchors);
+      return 1;
+    }
+    var count = 0;
+    moves[count++] = Move.encode(Move.SKIP, 0, 0, 0);
+    var patchcircle = game.patchcircle();
+    for (var i = 0; i < 3 && i < patchcircle.size(); i++) {
+      var patch = patchcircle.get(i);
+      if (patch.price() > player.button() || quiltboard.legalPlacements(patch, anchors) == 0)
+        continue;
+      moves[count++] = Move.encode(Move.BUY, i, 0, 0);
+    }
+    return count;
+  }
+
+  /**
+   * Places the patch of a choice
+   * @param game the game
+   * @param choice the choice (see choices)
+   * @return the encoded move, with the best placement for a purchase
+   */
+  private int place(Game game, int choice) {
+    if (Move.kind(choice) != Move.BUY)
+      return choice;
+    var patchIndex = Move.patchIndex(choice);
+    var patchcircle = game.patchcircle();
+    return PlacementPolicy.best(game.currentPlayer().quiltboard(), patchcircle.get(patchIndex), patchIndex, anchors,
+                                patchcircle.smallestPatch());
+  }
+}
@@ -1,7 +1,7 @@
 package fr.uge.patchwork2;
 
-import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -14,11 +14,81 @@ public class QuiltBoard {
   /**
    * Size of the quilt board
    */
-  private static int SIZE = 9;
+  private static final int SIZE = 9;
   /**
-   * Array representing the state of each space of the quilt board
+   * Number of squares of a 7x7 square
    */
-  private final boolean[][] board;
+  private static final int SEVEN_BY_SEVEN_SIZE = 7 * 7;
+  /**
+   * Masks of the nine 7x7 squares of the quilt board, low and high longs for each
+   * (index (y * 3 + x) * 2 where (x, y) is the left topmost position)
+   */
+  private static final long[] SEVEN_BY_SEVEN = new long[9 * 2];
+  /**
+   * Greatest number of empty regions of a quilt board (the white squares of a checkerboard)
+   */
+  private static final int MAX_REGIONS = (SIZE * SIZE + 1) / 2;
+  
+  static {
+    for (var y = 0; y < 3; y++) {
+      for (var x = 0; x < 3; x++) {
+        for (var i = 0; i < 7; i++) {
+          for (var j = 0; j < 7; j++) {
+            var index = BitBoard.index(x + j, y + i);
+            if (index < Long.SIZE)
+              SEVEN_BY_SEVEN[(y * 3 + x) * 2] |= 1L << index;
+            else
+              SEVEN_BY_SEVEN[(y * 3 + x) * 2 + 1] |= 1L << (index - Long.SIZE);
+          }
+        }
+      }
+    }
+  }
+  /**
+   * Occupied squares 0 to 63 of the quilt board (see BitBoard for the layout)
+   */
+  private long low;
+  /**
+   * Occupied squares 64 to 80 of the quilt board (see BitBoard for the layout)
+   */
+  private long high;
+  /**
+   * Number of empty squares, updated when a patch is placed
+   */
+  private int emptySquares;
+  /**
+   * Number of buttons on the placed patches, updated when a patch is placed
+   */
+  private int buttons;
+  /**
+   * Number of empty squares in each of the nine 7x7 squares (index y * 3 + x of the left topmost position)
+   */
+  private final int[] sevenBySevenMissing;
+  /**
+   * Smallest value of sevenBySevenMissing
+   */
+  private int sevenBySevenMinMissing;
+  /**
+   * Zobrist hash of the occupied squares and of the buttons of the quilt board (see Zobrist)
+   */
+  private long hash;
+  /**
+   * Connected regions of the empty squares, low and high longs of each region (index 2 * region),
+   * updated when a patch is placed or removed : only the regions touched by the patch are split or merged
+   */
+  private final long[] regions;
+  /**
+   * Number of squares of each empty region
+   */
+  private final int[] regionSizes;
+  /**
+   * Number of empty regions
+   */
+  private int regionCount;
+  /**
+   * Number of squares of the smallest empty region (0 if the quilt board is full)
+   */
+  private int smallestRegion;
   /*
    * List of placed patches on the board
    * 
@@ -29,14 +99,16 @@ public class QuiltBoard {
    * Initialize an empty quilt board
    */
   public QuiltBoard() {
-    board = new boolean[SIZE][SIZE];
     patchplaced = new ArrayList<PatchPlaced>();
-
-    for (var i = 0; i < SIZE; i++) {
-      for (var j = 0; j < SIZE; j++) {
-        board[i][j] = false;
-      }
-    }
+    emptySquares = SIZE * SIZE;
+    sevenBySevenMissing = new int[9];
+    Arrays.fill(sevenBySevenMissing, SEVEN_BY_SEVEN_SIZE);
+    sevenBySevenMinMissing = SEVEN_BY_SEVEN_SIZE;
+    hash = Zobrist.income(0);
+    regions = new long[2 * MAX_REGIONS];
+    regionSizes = new int[MAX_REGIONS];
+    addRegions(-1L, BitBoard.HIGH_MASK);
+    updateSmallestRegion();
   }
 
   /**
@@ -49,14 +121,49 @@ public class QuiltBoard {
   }
 
   /**
-   * Getter for field board
+   * Builds an array of boolean from the occupied squares of the quilt board.
+   * The array is a copy, modifying it does not modify the quilt board.
    * 
    * @return array of boolean representing the squares occupied in the quilt board
    */
   public boolean[][] getBoard() {
+    var board = new boolean[SIZE][SIZE];
+    for (var i = 0; i < SIZE; i++) {
+      for (var j = 0; j < SIZE; j++) {
+        board[i][j] = isOccupied(j, i);
+      }
+    }
     return board;
   }
   
+  /**
+   * Checks if the square at the given coordinates is occupied
+   * @param x x coordinate of the square
+   * @param y y coordinate of the square
+   * @return true if the square is occupied, otherwise false
+   */
+  public boolean isOccupied(int x, int y) {
+    if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+      throw new IllegalArgumentException("square out of bound");
+    return BitBoard.isSet(low, high, BitBoard.index(x, y));
+  }
+  
+  /**
+   * Getter for the occupied squares 0 to 63 (see BitBoard for the layout)
+   * @return the corresponding bits
+   */
+  public long low() {
+    return low;
+  }
+  
+  /**
+   * Getter for the occupied squares 64 to 80 (see BitBoard for the layout)
+   * @return the corresponding bits
+   */
+  public long high() {
+    return high;
+  }
+  
   /**
    * Returns the number of patches placed in this quiltboard
    * @return the corresponding number
@@ -78,57 +185,152 @@ public class QuiltBoard {
    * returns false.
    * 
    * @param patch  patch to check
-   * @param anchor anchor point for placement reference
+   * @param x x coordinate of the anchor square for placement reference
+   * @param y y coordinate of the anchor square for placement reference
    * @return boolean
    */
-  public boolean canPlacePatch(Patch patch, Point anchor) {
+  public boolean canPlacePatch(Patch patch, int x, int y) {
     Objects.requireNonNull(patch, "patch cannot be null");
-    Objects.requireNonNull(anchor, "anchor point cannot be null");
 
-    if (anchor.x < 0 || (anchor.x + patch.sizeX() > SIZE))
+    if (x < 0 || (x + patch.sizeX() > SIZE))
       return false;
-    if (anchor.y < 0 || (anchor.y + patch.sizeY() > SIZE))
+    if (y < 0 || (y + patch.sizeY() > SIZE))
       return false;
 
-    var form = patch.form();
+    var shift = BitBoard.index(x, y);
+    var mask = patch.mask();
+    return ((low & BitBoard.shiftLow(mask, shift)) | (high & BitBoard.shiftHigh(mask, shift))) == 0;
+  }
 
-    for (var i = 0; i < patch.sizeY(); i++) {
-      for (var j = 0; j < patch.sizeX(); j++) {
-        if (form[i][j] && board[anchor.y + i][anchor.x + j]) {
-          return false;
-        }
-          
+  /**
+   * Computes in one pass every legal placement of every orientation of the given patch.
+   * 
+   * For the orientation number o of the patch's orientation table (see Patch.orientation(int)),
+   * anchors[2 * o] and anchors[2 * o + 1] are filled with the low and high longs of the anchor squares
+   * (index y * 9 + x, see BitBoard) where that orientation can be placed.
+   * 
+   * Nothing is allocated, the caller provides the array (of length 16 at least to handle any patch).
+   * 
+   * @param patch patch to place
+   * @param anchors array filled with the legal anchors of each orientation
+   * @return the total number of legal placements (orientation, anchor)
+   */
+  public int legalPlacements(Patch patch, long[] anchors) {
+    Objects.requireNonNull(patch, "patch cannot be null");
+    Objects.requireNonNull(anchors, "anchors cannot be null");
+    var count = patch.orientationCount();
+    if (anchors.length < 2 * count)
+      throw new IllegalArgumentException("anchors array too small");
+    
+    var freeLow = ~low;
+    var freeHigh = ~high & BitBoard.HIGH_MASK;
+    var total = 0;
+    for (var o = 0; o < count; o++) {
+      var orientation = patch.orientation(o);
+      var legalLow = BitBoard.anchorsLow(orientation.sizeX(), orientation.sizeY());
+      var legalHigh = BitBoard.anchorsHigh(orientation.sizeX(), orientation.sizeY());
+      /* an anchor is legal if the square under each block of the patch is free */
+      for (var mask = orientation.mask(); mask != 0; mask &= mask - 1) {
+        var shift = Long.numberOfTrailingZeros(mask);
+        legalLow &= BitBoard.shiftRightLow(freeLow, freeHigh, shift);
+        legalHigh &= BitBoard.shiftRightHigh(freeHigh, shift);
       }
+      anchors[2 * o] = legalLow;
+      anchors[2 * o + 1] = legalHigh;
+      total += Long.bitCount(legalLow) + Long.bitCount(legalHigh);
     }
-    return true;
+    return total;
   }
 
   /**
    * Places the corresponding patch on the quilt board
    * 
    * @param patch  patch to place
-   * @param anchor anchor point for placement reference
+   * @param x x coordinate of the anchor square for placement reference
+   * @param y y coordinate of the anchor square for placement reference
    */
-  public void placePatch(Patch patch, Point anchor) {
+  public void placePatch(Patch patch, int x, int y) {
     Objects.requireNonNull(patch, "patch cannot be null");
-    Objects.requireNonNull(anchor, "anchor point cannot be null");
-    if (anchor.x < 0 || (anchor.x + patch.sizeX() > SIZE))
+    if (x < 0 || (x + patch.sizeX() > SIZE))
       throw new IllegalArgumentException("Placed patch out of bound");
-    if (anchor.y < 0 || (anchor.y + patch.sizeY() > SIZE))
+    if (y < 0 || (y + patch.sizeY() > SIZE))
       throw new IllegalArgumentException("Placed patch out of bound");
 
-    var form = patch.form();
+    var shift = BitBoard.index(x, y);
+    var shiftedLow = BitBoard.shiftLow(patch.mask(), shift);
+    var shiftedHigh = BitBoard.shiftHigh(patch.mask(), shift);
+    if (((low & shiftedLow) | (high & shiftedHigh)) != 0)
+      throw new IllegalArgumentException("Placing a patch at an already occupied position");
+    low |= shiftedLow;
+    high |= shiftedHigh;
+    emptySquares -= Long.bitCount(patch.mask());
+    hash ^= Zobrist.squares(shiftedLow, shiftedHigh) ^ Zobrist.income(buttons) ^ Zobrist.income(buttons + patch.buttons());
+    buttons += patch.buttons();
+    updateSevenBySeven(shiftedLow, shiftedHigh, -1);
+    splitRegions(shiftedLow, shiftedHigh);
 
-    for (var i = 0; i < patch.sizeY(); i++) {
-      for (var j = 0; j < patch.sizeX(); j++) {
-        if (form[i][j] && board[anchor.y + i][anchor.x + j])
-          throw new IllegalArgumentException("Placing a patch at an already occupied position");
-        if (form[i][j])
-          board[anchor.y + i][anchor.x + j] = true;
-      }
-    }
+    patchplaced.add(new PatchPlaced(patch, shift));
+  }
+  
+  /**
+   * Removes the last patch placed on the quilt board, used to undo a move.
+   * The quilt board is restored in the exact state it had before that patch was placed.
+   * 
+   * @return the removed patch with its anchor point
+   */
+  public PatchPlaced removeLastPatch() {
+    if (patchplaced.isEmpty())
+      throw new IllegalStateException("No patch placed on the quilt board");
+    var removed = patchplaced.remove(patchplaced.size() - 1);
+    var patch = removed.patch();
+    var shift = removed.anchor();
+    var shiftedLow = BitBoard.shiftLow(patch.mask(), shift);
+    var shiftedHigh = BitBoard.shiftHigh(patch.mask(), shift);
+    low &= ~shiftedLow;
+    high &= ~shiftedHigh;
+    emptySquares += Long.bitCount(patch.mask());
+    hash ^= Zobrist.squares(shiftedLow, shiftedHigh) ^ Zobrist.income(buttons) ^ Zobrist.income(buttons - patch.buttons());
+    buttons -= patch.buttons();
+    updateSevenBySeven(shiftedLow, shiftedHigh, 1);
+    mergeRegions(shiftedLow, shiftedHigh);
+    return removed;
+  }
+
+  /**
+   * Replaces the content of the quilt board by the given occupied squares, used to restore a GameState.
+   * The list of placed patches cannot be rebuilt from the squares, so it is emptied :
+   * the patches placed before cannot be removed with removeLastPatch.
+   *
+   * @param low occupied squares 0 to 63
+   * @param high occupied squares 64 to 80
+   * @param buttons buttons located on the patches of the quilt board
+   */
+  public void restore(long low, long high, int buttons) {
+    if ((high & ~BitBoard.HIGH_MASK) != 0)
+      throw new IllegalArgumentException("occupied squares out of the quilt board");
+    if (buttons < 0)
+      throw new IllegalArgumentException("number of buttons cannot be negative");
+    patchplaced.clear();
+    this.low = low;
+    this.high = high;
+    this.buttons = buttons;
+    emptySquares = SIZE * SIZE - Long.bitCount(low) - Long.bitCount(high);
+    Arrays.fill(sevenBySevenMissing, SEVEN_BY_SEVEN_SIZE);
+    updateSevenBySeven(low, high, -1);
+    hash = Zobrist.squares(low, high) ^ Zobrist.income(buttons);
+    regionCount = 0;
+    addRegions(~low, ~high & BitBoard.HIGH_MASK);
+    updateSmallestRegion();
+  }
 
-    patchplaced.add(new PatchPlaced(patch, anchor));
+  /**
+   * Returns the Zobrist hash of the occupied squares and of the buttons of the quilt board,
+   * kept up to date by every method modifying the quilt board
+   *
+   * @return the hash
+   */
+  public long hash() {
+    return hash;
   }
 
   /**
@@ -137,11 +339,7 @@ public class QuiltBoard {
    * @return the number of buttons
    */
   public int buttons() {
-    var button = 0;
-    for (var pp : patchplaced) {
-      button += pp.patch().buttons();
-    }
-    return button;
+    return buttons;
   }
 
   /**
@@ -150,33 +348,29 @@ public class QuiltBoard {
    * @return The number of empty square
    */
   public int emptySquare() {
-    int nb = 0;
-    for (var i = 0; i < SIZE; i++) {
-      for (var j = 0; j < SIZE; j++) {
-        if (board[i][j] == false)
-          nb++;
-      }
-    }
-    return nb;
+    return emptySquares;
   }
   
   /**
-   * Checks if there is a 7x7 square in the quiltboard at the location described by the left topmost corner
-   * @param x x coordinate of the left topmost position
-   * @param y y coordinate of the left topmost position
-   * @return true if there is a 7x7 square at the position, if not then false
+   * Returns the number of squares still missing to fill the 7x7 square whose left topmost corner is (x, y)
+   * @param x x coordinate of the left topmost position (between 0 and 2)
+   * @param y y coordinate of the left topmost position (between 0 and 2)
+   * @return the number of empty squares in that 7x7 square (0 if it is full)
    */
-  private boolean isSevenBySevenSquare(int x, int y) {
+  public int sevenBySevenMissing(int x, int y) {
     if (x < 0 || x > 2)
       throw new IllegalArgumentException("x out of bounds for 7x7 square");
     if (y < 0 || y > 2)
-      throw new IllegalArgumentException("x out of bounds for 7x7 square");
-    
-    for(var i = 0; i < 7; i++)
-      for (var j = 0; j < 7; j++)
-        if (board[y + i][x + j] == false)
-          return false;
-    return true;
+      throw new IllegalArgumentException("y out of bounds for 7x7 square");
+    return sevenBySevenMissing[y * 3 + x];
+  }
+  
+  /**
+   * Returns the smallest number of squares still missing to create a full 7x7 square in the quiltboard
+   * @return the aforementioned number (0 if there is a 7x7 square)
+   */
+  public int sevenBySevenMinMissing() {
+    return sevenBySevenMinMissing;
   }
   
   /**
@@ -184,10 +378,181 @@ public class QuiltBoard {
    * @return true if there is a 7x7 square placed, if not then false
    */
   public boolean hasSevenBySevenSquare() {
-    for(var i = 0; i < 3; i++)
-      for(var j = 0; j < 3; j++)
-        if (isSevenBySevenSquare(i, j))
+    return sevenBySevenMinMissing == 0;
+  }
+  
+  /**
+   * Updates the number of missing squares of each 7x7 square after squares have been occupied or freed
+   * @param changedLow newly occupied (or freed) squares 0 to 63
+   * @param changedHigh newly occupied (or freed) squares 64 to 80
+   * @param direction -1 if the squares have been occupied, 1 if they have been freed
+   */
+  private void updateSevenBySeven(long changedLow, long changedHigh, int direction) {
+    var min = SEVEN_BY_SEVEN_SIZE;
+    for (var w = 0; w < sevenBySevenMissing.length; w++) {
+      sevenBySevenMissing[w] += direction * (Long.bitCount(changedLow & SEVEN_BY_SEVEN[2 * w])
+                                           + Long.bitCount(changedHigh & SEVEN_BY_SEVEN[2 * w + 1]));
+      min = Math.min(min, sevenBySevenMissing[w]);
+    }
+    sevenBySevenMinMissing = min;
+  }
+
+  /**
+   * Returns the number of connected regions of empty squares
+   * @return the number of regions (0 if the quilt board is full)
+   */
+  public int emptyRegions() {
+    return regionCount;
+  }
+
+  /**
+   * Returns the size of the smallest connected region of empty squares
+   * @return the number of squares of that region (0 if the quilt board is full)
+   */
+  public int smallestEmptyRegion() {
+    return smallestRegion;
+  }
+
+  /**
+   * Returns the size of a connected region of empty squares
+   * @param index index of the region (between 0 and emptyRegions() - 1)
+   * @return the number of squares of the region
+   */
+  public int emptyRegionSize(int index) {
+    Objects.checkIndex(index, regionCount);
+    return regionSizes[index];
+  }
+
+  /**
+   * Returns a connected region of empty squares with its bounding box
+   * @param index index of the region (between 0 and emptyRegions() - 1), the order changes when a patch is placed
+   * @return the region
+   */
+  public EmptyRegion emptyRegion(int index) {
+    Objects.checkIndex(index, regionCount);
+    return EmptyRegion.of(regions[2 * index], regions[2 * index + 1]);
+  }
+
+  /**
+   * Checks if placing a patch on the given squares would leave an empty region smaller than the given size
+   * (the quilt board is not modified)
+   * @param shiftedLow squares 0 to 63 covered by the patch, all empty
+   * @param shiftedHigh squares 64 to 80 covered by the patch, all empty
+   * @param size the size
+   * @return true if one of the regions created by the split of the region of the patch is smaller
+   */
+  public boolean leavesRegionSmallerThan(long shiftedLow, long shiftedHigh, int size) {
+    for (var r = 0; r < regionCount; r++) {
+      var regionLow = regions[2 * r];
+      var regionHigh = regions[2 * r + 1];
+      if (((regionLow & shiftedLow) | (regionHigh & shiftedHigh)) == 0)
+        continue;
+      var restLow = regionLow & ~shiftedLow;
+      var restHigh = regionHigh & ~shiftedHigh;
+      while ((restLow | restHigh) != 0) {
+        var componentLow = restLow & -restLow;
+        var componentHigh = componentLow != 0 ? 0 : restHigh & -restHigh;
+        while (true) { /* flood fill of the component */
+          var grownLow = BitBoard.growLow(componentLow, componentHigh) & restLow;
+          var grownHigh = BitBoard.growHigh(componentLow, componentHigh) & restHigh;
+          if (grownLow == componentLow && grownHigh == componentHigh)
+            break;
+          componentLow = grownLow;
+          componentHigh = grownHigh;
+        }
+        if (Long.bitCount(componentLow) + Long.bitCount(componentHigh) < size)
           return true;
+        restLow &= ~componentLow;
+        restHigh &= ~componentHigh;
+      }
+    }
     return false;
   }
+
+  /**
+   * Splits the empty regions touched by a placed patch
+   * @param shiftedLow squares 0 to 63 covered by the patch
+   * @param shiftedHigh squares 64 to 80 covered by the patch
+   */
+  private void splitRegions(long shiftedLow, long shiftedHigh) {
+    var restLow = 0L;
+    var restHigh = 0L;
+    for (var r = regionCount - 1; r >= 0; r--) {
+      if (((regions[2 * r] & shiftedLow) | (regions[2 * r + 1] & shiftedHigh)) != 0) {
+        restLow |= regions[2 * r];
+        restHigh |= regions[2 * r + 1];
+        removeRegion(r);
+      }
+    }
+    addRegions(restLow & ~shiftedLow, restHigh & ~shiftedHigh);
+    updateSmallestRegion();
+  }
+
+  /**
+   * Merges the squares freed by a removed patch with the empty regions they touch
+   * @param shiftedLow squares 0 to 63 freed
+   * @param shiftedHigh squares 64 to 80 freed
+   */
+  private void mergeRegions(long shiftedLow, long shiftedHigh) {
+    var touchedLow = BitBoard.growLow(shiftedLow, shiftedHigh);
+    var touchedHigh = BitBoard.growHigh(shiftedLow, shiftedHigh);
+    var mergedLow = shiftedLow;
+    var mergedHigh = shiftedHigh;
+    for (var r = regionCount - 1; r >= 0; r--) {
+      if (((regions[2 * r] & touchedLow) | (regions[2 * r + 1] & touchedHigh)) != 0) {
+        mergedLow |= regions[2 * r];
+        mergedHigh |= regions[2 * r + 1];
+        removeRegion(r);
+      }
+    }
+    addRegions(mergedLow, mergedHigh);
+    updateSmallestRegion();
+  }
+
+  /**
+   * Adds the connected regions of the given empty squares
+   * @param low empty squares 0 to 63
+   * @param high empty squares 64 to 80
+   */
+  private void addRegions(long low, long high) {
+    while ((low | high) != 0) {
+      var regionLow = low & -low;
+      var regionHigh = regionLow != 0 ? 0 : high & -high;
+      while (true) { /* flood fill of the region */
+        var grownLow = BitBoard.growLow(regionLow, regionHigh) & low;
+        var grownHigh = BitBoard.growHigh(regionLow, regionHigh) & high;
+        if (grownLow == regionLow && grownHigh == regionHigh)
+          break;
+        regionLow = grownLow;
+        regionHigh = grownHigh;
+      }
+      regions[2 * regionCount] = regionLow;
+      regions[2 * regionCount + 1] = regionHigh;
+      regionSizes[regionCount] = Long.bitCount(regionLow) + Long.bitCount(regionHigh);
+      regionCount++;
+      low &= ~regionLow;
+      high &= ~regionHigh;
+    }
+  }
+
+  /**
+   * Removes an empty region, the last region takes its index
+   * @param index index of the region
+   */
+  private void removeRegion(int index) {
+    regionCount--;
+    regions[2 * index] = regions[2 * regionCount];
+    regions[2 * index + 1] = regions[2 * regionCount + 1];
+    regionSizes[index] = regionSizes[regionCount];
+  }
+
+  /**
+   * Updates the size of the smallest empty region
+   */
+  private void updateSmallestRegion() {
+    var min = regionCount == 0 ? 0 : Integer.MAX_VALUE;
+    for (var r = 0; r < regionCount; r++)
+      min = Math.min(min, regionSizes[r]);
+    smallestRegion = min;
+  }
 }
@@ -0,0 +1,33 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Bot playing a legal move chosen uniformly at random.
+ * A bot keeps buffers between two decisions, an instance must only be used by one game at a time.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class RandomBot implements Decider {
+  private final Random random;
+  private final int[] moves;
+
+  /**
+   * Constructor for RandomBot
+   * @param random random generator used to choose the moves
+   */
+  public RandomBot(Random random) {
+    this.random = Objects.requireNonNull(random);
+    moves = new int[Game.MAX_MOVES];
+  }
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    var count = game.legalMoves(moves);
+    if (count == 0)
+      throw new IllegalStateException("No legal move, the game is over");
+    return moves[random.nextInt(count)];
+  }
+}
@@ -0,0 +1,168 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+
+/**
+ * Represents the shape of a patch : its dimensions and its cells packed in a long.
+ *
+ * The cell (x, y) is the bit y * sizeX + x of cells, a shape is at most 7x7 so 49 bits are enough.
+ * Two shapes with the same dimensions and the same cells are equal, so a shape can be used as a key.
+ * @param sizeX horizontal size of the shape
+ * @param sizeY vertical size of the shape
+ * @param cells cells of the shape (bit y * sizeX + x set if the cell (x, y) is covered)
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public record Shape(int sizeX, int sizeY, long cells) {
+  /**
+   * Greatest size of a shape in each direction
+   */
+  public static final int MAX_SIZE = 7;
+  /**
+   * Number of bits used by the cells in the id of a shape
+   */
+  private static final int CELL_BITS = MAX_SIZE * MAX_SIZE;
+
+  /**
+   * Constructor for Shape
+   * @param sizeX horizontal size of the shape, between 1 and MAX_SIZE
+   * @param sizeY vertical size of the shape, between 1 and MAX_SIZE
+   * @param cells cells of the shape, only the sizeX * sizeY lowest bits can be set
+   */
+  public Shape {
+    if (sizeX <= 0)
+      throw new IllegalArgumentException("sizeX <= 0");
+    if (sizeY <= 0)
+      throw new IllegalArgumentException("sizeY <= 0");
+    if (sizeX > MAX_SIZE || sizeY > MAX_SIZE)
+      throw new IllegalArgumentException("shape larger than 7x7");
+    if ((cells & (-1L << (sizeX * sizeY))) != 0)
+      throw new IllegalArgumentException("cells out of the shape");
+  }
+
+  /**
+   * Creates the shape described by an array of booleans
+   * @param form array of booleans, form[y][x] is true if the cell (x, y) is covered
+   * @param sizeX horizontal size of the array
+   * @param sizeY vertical size of the array
+   * @return the shape
+   */
+  public static Shape of(boolean[][] form, int sizeX, int sizeY) {
+    Objects.requireNonNull(form);
+    if (form.length != sizeY || form[0].length != sizeX)
+      throw new IllegalArgumentException("form does not match sizeX and sizeY");
+    var cells = 0L;
+    for (var y = 0; y < sizeY; y++) {
+      for (var x = 0; x < sizeX; x++) {
+        if (form[y][x])
+          cells |= 1L << (y * sizeX + x);
+      }
+    }
+    return new Shape(sizeX, sizeY, cells);
+  }
+
+  /**
+   * Creates a rectangle fully covered
+   * @param sizeX horizontal size of the rectangle
+   * @param sizeY vertical size of the rectangle
+   * @return the shape
+   */
+  public static Shape rectangle(int sizeX, int sizeY) {
+    return new Shape(sizeX, sizeY, -1L >>> (Long.SIZE - sizeX * sizeY));
+  }
+
+  /**
+   * Checks if a cell is covered by the shape
+   * @param x x coordinate of the cell
+   * @param y y coordinate of the cell
+   * @return true if the cell is inside the shape and covered
+   */
+  public boolean contains(int x, int y) {
+    if (x < 0 || x >= sizeX || y < 0 || y >= sizeY)
+      return false;
+    return (cells & (1L << (y * sizeX + x))) != 0;
+  }
+
+  /**
+   * Returns the number of cells covered by the shape
+   * @return the number of cells
+   */
+  public int cellCount() {
+    return Long.bitCount(cells);
+  }
+
+  /**
+   * Returns an id of the shape, two shapes have the same id if and only if they are equal
+   * @return the cells, followed by the sizes minus one on three bits each
+   */
+  public long id() {
+    return cells | (long) (sizeX - 1) << CELL_BITS | (long) (sizeY - 1) << (CELL_BITS + 3);
+  }
+
+  /**
+   * Encodes the shape into a mask using the row length of the quilt board (see BitBoard)
+   * @return the mask of the shape, anchored at the square (0, 0)
+   */
+  public long mask() {
+    var mask = 0L;
+    for (var y = 0; y < sizeY; y++) {
+      var row = (cells >>> (y * sizeX)) & ((1L << sizeX) - 1);
+      mask |= row << BitBoard.index(0, y);
+    }
+    return mask;
+  }
+
+  /**
+   * Rotates the shape by a quarter turn
+   * @param type direction of the rotation (0 = clockwise, 1 = counterclockwise)
+   * @return the rotated shape
+   */
+  public Shape flip(int type) {
+    if (type != 0 && type != 1)
+      throw new IllegalArgumentException("Unknown flip type");
+    /* the rotated shape has sizeY columns and sizeX rows */
+    var rotated = 0L;
+    for (var bits = cells; bits != 0; bits &= bits - 1) {
+      var index = Long.numberOfTrailingZeros(bits);
+      var x = index % sizeX;
+      var y = index / sizeX;
+      var newX = type == 0 ? sizeY - 1 - y : y;
+      var newY = type == 0 ? x : sizeX - 1 - x;
+      rotated |= 1L << (newY * sizeY + newX);
+    }
+    return new Shape(sizeY, sizeX, rotated);
+  }
+
+  /**
+   * Mirrors the shape (axial symmetry)
+   * @param type axis of the symmetry (0 = horizontal, 1 = vertical)
+   * @return the mirrored shape
+   */
+  public Shape mirror(int type) {
+    if (type != 0 && type != 1)
+      throw new IllegalArgumentException("Unknown mirror type");
+    var mirrored = 0L;
+    for (var bits = cells; bits != 0; bits &= bits - 1) {
+      var index = Long.numberOfTrailingZeros(bits);
+      var x = index % sizeX;
+      var y = index / sizeX;
+      var newX = type == 0 ? sizeX - 1 - x : x;
+      var newY = type == 0 ? y : sizeY - 1 - y;
+      mirrored |= 1L << (newY * sizeX + newX);
+    }
+    return new Shape(sizeX, sizeY, mirrored);
+  }
+
+  /**
+   * Returns the shape as an array of booleans
+   * @return a new array, form[y][x] is true if the cell (x, y) is covered
+   */
+  public boolean[][] form() {
+    var form = new boolean[sizeY][sizeX];
+    for (var y = 0; y < sizeY; y++) {
+      for (var x = 0; x < sizeX; x++)
+        form[y][x] = contains(x, y);
+    }
+    return form;
+  }
+}
@@ -0,0 +1,348 @@
+package fr.uge.patchwork2;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Plays batches of complete games between two bots on every core, without any display.
+ *
+ * Each game has its own Game and random generators, games only share immutable objects (patches, keys...)
+ * and, when one is given, the transposition table of the alpha-beta bots (which needs no lock), so they can run in parallel.
+ * Each thread builds its two bots once and plays all its games with them : their tables, memos and caches are kept
+ * from one game to the next, only their random generators are seeded again for each game.
+ * The parallel MCTS bots of a batch share one pool of helper threads, the bots and the pool are closed at the end of the batch.
+ * The bots swap seats every game so that the advantage of playing first is shared.
+ * The random generator of the game number i only depends on the seed and on i : a batch is reproducible
+ * for the bots keeping nothing between two moves (random, greedy, mcts), the moves of the others also depend
+ * on the games played before by their thread.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class Simulator {
+  /**
+   * Names of the available bots, a search bot can be followed by its budget per move
+   * (":1000" for 1000 iterations, ":500ms" for 500 milliseconds).
+   * "pmcts" is the MCTS sharing its tree between as many threads as there are cores.
+   * The budget of "alphabeta" is its maximum depth or its duration per move.
+   * "solver" plays the basic mode only : it plays perfectly once it can solve the position within its budget
+   * of states per move, and asks an alpha-beta bot before.
+   * "endgame" is an alpha-beta bot until the remaining time of the players is at most its budget,
+   * then it searches every legal move until the end of the game.
+   */
+  public static final List<String> BOTS = List.of("random", "greedy", "mcts", "pmcts", "alphabeta", "solver", "endgame");
+  /**
+   * Iterations per move of the MCTS bot when no budget is given
+   */
+  private static final int DEFAULT_ITERATIONS = 1000;
+  /**
+   * Maximum depth of the alpha-beta bot when no budget is given
+   */
+  private static final int DEFAULT_DEPTH = 8;
+  /**
+   * Size in megabytes of the transposition table of each alpha-beta bot when no table is shared
+   */
+  private static final int TABLE_MEGABYTES = 16;
+  /**
+   * States searched per move by the basic solver when no budget is given
+   */
+  private static final int DEFAULT_STATES = 200_000;
+  /**
+   * Size in megabytes of the memory of each basic solver
+   */
+  private static final int SOLVER_MEGABYTES = 32;
+  /**
+   * Remaining time of the players below which the endgame solver takes over when no budget is given
+   */
+  private static final int DEFAULT_THRESHOLD = 12;
+
+  private final int type;
+  private final String botA;
+  private final String botB;
+  private final int threads;
+  private final TranspositionTable table;
+
+  /**
+   * Constructor for Simulator
+   * @param type type of the games (basic = 0 or full = 1)
+   * @param botA name of the first bot (see BOTS)
+   * @param botB name of the second bot (see BOTS)
+   * @param threads number of threads playing the games
+   */
+  public Simulator(int type, String botA, String botB, int threads) {
+    this(type, botA, botB, threads, null);
+  }
+
+  /**
+   * Constructor for Simulator where the alpha-beta bots of every game share a transposition table
+   * @param type type of the games (basic = 0 or full = 1)
+   * @param botA name of the first bot (see BOTS)
+   * @param botB name of the second bot (see BOTS)
+   * @param threads number of threads playing the games
+   * @param table transposition table shared by the alpha-beta bots (null for a table per bot)
+   */
+  public Simulator(int type, String botA, String botB, int threads, TranspositionTable table) {
+    if (type > 1 || type < 0)
+      throw new IllegalArgumentException("game type invalid");
+    checkBot(botA);
+    checkBot(botB);
+    if (type != 0 && (isSolver(botA) || isSolver(botB)))
+      throw new IllegalArgumentException("the solver only plays the basic mode");
+    if (threads <= 0)
+      throw new IllegalArgumentException("threads must be positive");
+    this.type = type;
+    this.botA = botA;
+    this.botB = botB;
+    this.threads = threads;
+    this.table = table;
+  }
+
+  /**
+   * Creates a bot
+   * @param name name of the bot (see BOTS)
+   * @param random random generator of the bot
+   * @return the bot
+   */
+  public static Decider bot(String name, Random random) {
+    return bot(name, random, null);
+  }
+
+  /**
+   * Creates a bot
+   * @param name name of the bot (see BOTS)
+   * @param random random generator of the bot
+   * @param table transposition table of an alpha-beta bot (null for a new table on the heap)
+   * @return the bot
+   */
+  public static Decider bot(String name, Random random, TranspositionTable table) {
+    return bot(name, random, table, null);
+  }
+
+  /**
+   * Creates a bot
+   * @param name name of the bot (see BOTS)
+   * @param random random generator of the bot
+   * @param table transposition table of an alpha-beta bot (null for a new table on the heap)
+   * @param helpers helper threads shared by the parallel MCTS bots (null for threads owned by the bot)
+   * @return the bot
+   */
+  private static Decider bot(String name, Random random, TranspositionTable table, ExecutorService helpers) {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(random);
+    var budget = budget(name);
+    var cores = Runtime.getRuntime().availableProcessors();
+    return switch (base(name)) {
+      case "random" -> new RandomBot(random);
+      case "greedy" -> new GreedyBot(random);
+      case "mcts" -> new MctsBot(random, iterations(budget), millis(budget));
+      case "pmcts" -> helpers == null || cores == 1 ? new ParallelMctsBot(random, cores, iterations(budget), millis(budget))
+                                                    : new ParallelMctsBot(random, cores, iterations(budget), millis(budget), helpers);
+      case "alphabeta" -> new AlphaBetaBot(table != null ? table : new HeapTranspositionTable(TABLE_MEGABYTES),
+                                           depth(budget), millis(budget));
+      case "solver" -> new BasicSolver(SOLVER_MEGABYTES, count(budget, DEFAULT_STATES), bot("alphabeta", random, table));
+      case "endgame" -> new EndgameSolver(new HeapTranspositionTable(TABLE_MEGABYTES), count(budget, DEFAULT_THRESHOLD), true,
+                                          bot("alphabeta", random, table));
+      default -> throw unknownBot(name);
+    };
+  }
+
+  /**
+   * Checks the name and the budget of a bot without creating it (no table is allocated, no thread is started)
+   * @param name name of the bot (see BOTS)
+   */
+  private static void checkBot(String name) {
+    Objects.requireNonNull(name);
+    var budget = budget(name);
+    switch (base(name)) {
+      case "random", "greedy" -> { /* no budget */ }
+      case "mcts", "pmcts" -> {
+        iterations(budget);
+        millis(budget);
+      }
+      case "alphabeta" -> {
+        depth(budget);
+        millis(budget);
+      }
+      case "solver" -> count(budget, DEFAULT_STATES);
+      case "endgame" -> count(budget, DEFAULT_THRESHOLD);
+      default -> throw unknownBot(name);
+    }
+  }
+
+  /**
+   * Creates the exception thrown for an unknown bot
+   * @param name name of the bot
+   * @return the exception
+   */
+  private static IllegalArgumentException unknownBot(String name) {
+    return new IllegalArgumentException("Unknown bot " + name + ", available bots : " + BOTS);
+  }
+
+  /**
+   * Returns the name of a bot without its budget
+   * @param name name of the bot (see BOTS)
+   * @return the part of the name before the ':'
+   */
+  private static String base(String name) {
+    var separator = name.indexOf(':');
+    return separator < 0 ? name : name.substring(0, separator);
+  }
+
+  /**
+   * Returns the budget of a bot
+   * @param name name of the bot (see BOTS)
+   * @return the part of the name after the ':', empty if there is none
+   */
+  private static String budget(String name) {
+    var separator = name.indexOf(':');
+    return separator < 0 ? "" : name.substring(separator + 1);
+  }
+
+  /**
+   * Checks if a bot is the basic solver
+   * @param name name of the bot (see BOTS)
+   * @return true if the bot only plays the basic mode
+   */
+  private static boolean isSolver(String name) {
+    return name.equals("solver") || name.startsWith("solver:");
+  }
+
+  /**
+   * Returns the iterations per move of a search bot
+   * @param budget the budget following the name of the bot
+   * @return the number of iterations, 0 if the budget is a duration
+   */
+  private static int iterations(String budget) {
+    if (budget.endsWith("ms"))
+      return 0;
+    return count(budget, DEFAULT_ITERATIONS);
+  }
+
+  /**
+   * Returns the duration per move of a search bot
+   * @param budget the budget following the name of the bot
+   * @return the duration in milliseconds, 0 if the budget is a number of iterations
+   */
+  private static long millis(String budget) {
+    return budget.endsWith("ms") ? parseBudget(budget.substring(0, budget.length() - 2)) : 0;
+  }
+
+  /**
+   * Returns the maximum depth of the alpha-beta bot
+   * @param budget the budget following the name of the bot
+   * @return the depth, the deepest one if the budget is a duration
+   */
+  private static int depth(String budget) {
+    if (budget.endsWith("ms"))
+      return TranspositionTable.MAX_DEPTH - 1;
+    var depth = count(budget, DEFAULT_DEPTH);
+    if (depth >= TranspositionTable.MAX_DEPTH)
+      throw new IllegalArgumentException("the depth of the alpha-beta bot must be at most " + (TranspositionTable.MAX_DEPTH - 1));
+    return depth;
+  }
+
+  /**
+   * Returns a budget given as a number
+   * @param budget the budget following the name of the bot
+   * @param defaultValue the value used when no budget is given
+   * @return the budget
+   */
+  private static int count(String budget, int defaultValue) {
+    return budget.isEmpty() ? defaultValue : parseBudget(budget);
+  }
+
+  /**
+   * Parses the budget of a search bot
+   * @param budget the budget
+   * @return the budget as a positive int
+   */
+  private static int parseBudget(String budget) {
+    var value = Integer.parseInt(budget);
+    if (value <= 0)
+      throw new IllegalArgumentException("the budget of a bot must be positive");
+    return value;
+  }
+
+  /**
+   * Bots of a thread of the simulation, reused for all the games of that thread
+   */
+  private final class Seats {
+    private final Random randomA = new Random();
+    private final Random randomB = new Random();
+    private final Decider a;
+    private final Decider b;
+
+    private Seats(ExecutorService helpers) {
+      a = bot(botA, randomA, table, helpers);
+      b = bot(botB, randomB, table, helpers);
+    }
+
+    private void close() {
+      a.close();
+      b.close();
+    }
+  }
+
+  /**
+   * Plays a batch of games
+   * @param games number of games
+   * @param seed seed of the batch
+   * @return the results of the games
+   */
+  public Statistics run(int games, long seed) {
+    if (games < 0)
+      throw new IllegalArgumentException("games cannot be negative");
+    var pool = new ForkJoinPool(threads);
+    var cores = Runtime.getRuntime().availableProcessors();
+    var parallel = base(botA).equals("pmcts") || base(botB).equals("pmcts");
+    var helpers = parallel && cores > 1 ? ParallelMctsBot.newHelpers(cores - 1) : null; /* shared by every parallel MCTS bot */
+    var created = new ConcurrentLinkedQueue<Seats>();
+    var seats = ThreadLocal.withInitial(() -> {
+      var bots = new Seats(helpers);
+      created.add(bots);
+      return bots;
+    });
+    try {
+      return pool.submit(() -> IntStream.range(0, games).parallel()
+                                        .collect(Statistics::new, (stats, i) -> playGame(stats, i, seed, seats.get()),
+                                                 Statistics::merge))
+                 .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A game of the simulation failed", e.getCause());
+    } finally {
+      pool.shutdown();
+      created.forEach(Seats::close);
+      if (helpers != null)
+        helpers.shutdown();
+    }
+  }
+
+  /**
+   * Plays the game number index of the batch and adds its result
+   * @param stats the results of the thread
+   * @param index number of the game in the batch
+   * @param seed seed of the batch
+   * @param seats bots of the current thread
+   */
+  private void playGame(Statistics stats, int index, long seed, Seats seats) {
+    var random = new Random(seed + index * 0x9E37_79B9_7F4A_7C15L);
+    var game = new Game(type, random);
+    var aIsFirst = index % 2 == 0;
+    seats.randomA.setSeed(random.nextLong());
+    seats.randomB.setSeed(random.nextLong());
+    var a = seats.a;
+    var b = seats.b;
+    new GameEngine(game, aIsFirst ? a : b, aIsFirst ? b : a).play();
+    var scoreA = (aIsFirst ? game.player1() : game.player2()).score();
+    var scoreB = (aIsFirst ? game.player2() : game.player1()).score();
+    stats.add(scoreA, scoreB, aIsFirst);
+  }
+}
@@ -0,0 +1,161 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+
+/**
+ * Results of a batch of games between two bots (A and B) : win rates and score distribution of each bot.
+ *
+ * An instance is filled by a single thread, the instances of several threads are then merged.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class Statistics {
+  /**
+   * Lowest possible score (no button and an empty quilt board)
+   */
+  private static final int MIN_SCORE = -2 * QuiltBoard.getSIZE() * QuiltBoard.getSIZE();
+  /**
+   * Number of scores counted in the histograms, higher scores are counted as the highest one
+   */
+  private static final int HISTOGRAM_SIZE = 512;
+
+  private long games;
+  private long draws;
+  private long firstPlayerWins;
+  private final long[] wins = new long[2];
+  private final long[] scoreSum = new long[2];
+  private final long[] histogramA = new long[HISTOGRAM_SIZE];
+  private final long[] histogramB = new long[HISTOGRAM_SIZE];
+
+  /**
+   * Adds the result of a game
+   * @param scoreA score of the bot A
+   * @param scoreB score of the bot B
+   * @param aIsFirst true if the bot A was the player 1
+   */
+  public void add(int scoreA, int scoreB, boolean aIsFirst) {
+    games++;
+    if (scoreA == scoreB)
+      draws++;
+    else
+      wins[scoreA > scoreB ? 0 : 1]++;
+    if (scoreA != scoreB && (scoreA > scoreB) == aIsFirst)
+      firstPlayerWins++;
+    scoreSum[0] += scoreA;
+    scoreSum[1] += scoreB;
+    histogramA[bucket(scoreA)]++;
+    histogramB[bucket(scoreB)]++;
+  }
+
+  /**
+   * Adds the results of other games
+   * @param other the results to add
+   */
+  public void merge(Statistics other) {
+    Objects.requireNonNull(other);
+    games += other.games;
+    draws += other.draws;
+    firstPlayerWins += other.firstPlayerWins;
+    for (var i = 0; i < 2; i++) {
+      wins[i] += other.wins[i];
+      scoreSum[i] += other.scoreSum[i];
+    }
+    for (var i = 0; i < HISTOGRAM_SIZE; i++) {
+      histogramA[i] += other.histogramA[i];
+      histogramB[i] += other.histogramB[i];
+    }
+  }
+
+  /**
+   * Returns the index of a score in the histograms
+   * @param score the score
+   * @return the index
+   */
+  private static int bucket(int score) {
+    return Math.min(score - MIN_SCORE, HISTOGRAM_SIZE - 1);
+  }
+
+  /**
+   * getter for the games field
+   * @return the number of games
+   */
+  public long games() {
+    return games;
+  }
+
+  /**
+   * Returns the number of games won by a bot
+   * @param bot 0 for the bot A, 1 for the bot B
+   * @return the number of wins
+   */
+  public long wins(int bot) {
+    return wins[bot];
+  }
+
+  /**
+   * getter for the draws field
+   * @return the number of draws
+   */
+  public long draws() {
+    return draws;
+  }
+
+  /**
+   * Returns the average score of a bot
+   * @param bot 0 for the bot A, 1 for the bot B
+   * @return the average score
+   */
+  public double averageScore(int bot) {
+    return games == 0 ? 0 : (double) scoreSum[bot] / games;
+  }
+
+  /**
+   * Returns a percentile of the scores of a bot
+   * @param bot 0 for the bot A, 1 for the bot B
+   * @param percent the percentile (between 0 and 100)
+   * @return the smallest score such that percent % of the scores are lower or equal
+   */
+  public int percentile(int bot, double percent) {
+    if (percent < 0 || percent > 100)
+      throw new IllegalArgumentException("percent must be between 0 and 100");
+    var histogram = bot == 0 ? histogramA : histogramB;
+    var target = Math.max(1, (long) Math.ceil(games * percent / 100));
+    var count = 0L;
+    for (var i = 0; i < HISTOGRAM_SIZE; i++) {
+      count += histogram[i];
+      if (count >= target)
+        return i + MIN_SCORE;
+    }
+    return MIN_SCORE;
+  }
+
+  /**
+   * Generates a string that shows the results of the games
+   * @param nameA name of the bot A
+   * @param nameB name of the bot B
+   * @return the corresponding string
+   */
+  public String report(String nameA, String nameB) {
+    Objects.requireNonNull(nameA);
+    Objects.requireNonNull(nameB);
+    var sb = new StringBuilder();
+    sb.append(String.format("%d games, %d draws, player 1 won %.1f%% of the games%n",
+                            games, draws, percent(firstPlayerWins)));
+    for (var bot = 0; bot < 2; bot++) {
+      sb.append(String.format("%-8s wins %.1f%%, average score %.1f, scores min %d / 10%% %d / median %d / 90%% %d / max %d%n",
+                              bot == 0 ? nameA : nameB, percent(wins[bot]), averageScore(bot),
+                              percentile(bot, 0), percentile(bot, 10), percentile(bot, 50),
+                              percentile(bot, 90), percentile(bot, 100)));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Converts a number of games into a percentage of the games
+   * @param count the number of games
+   * @return the percentage
+   */
+  private double percent(long count) {
+    return games == 0 ? 0 : 100.0 * count / games;
+  }
+}
@@ -1,99 +1,41 @@
 package fr.uge.patchwork2;
 
-import java.awt.Point;
 import java.util.InputMismatchException;
 import java.util.Objects;
 import java.util.Scanner;
 
 /**
- * Collection of methods required to process the gameplay algorithm
- * The specificity of these methods are that they make use of inputs from the terminal
+ * Front end of the terminal mode, for a GameEngine it is both :
+ * - the Decider of the players, the moves are read from the inputs of the terminal
+ * - a GameListener, the events of the game are printed in the terminal
  * @author Gabriel Radoniaina / Hervé Nguyen
  *
  */
-public class TerminalAlgorithm {
-  
+public class TerminalAlgorithm implements Decider, GameListener {
+  private final Scanner scanner;
   /**
-   * Shows the state of the quiltboard of a given player
-   * @param player the current player
+   * Buffer used to check if a patch can be placed somewhere on a quiltboard
    */
-  private static void showStateQuiltboard(Player player) {
-    System.out.println("# State of your quiltboard:");
-    System.out.println(Displays.displayQuiltBoard(player.quiltboard()));
-  }
+  private final long[] anchors;
 
   /**
-   * From a given TimeBoardElement, processes the element with the appropriate action
-   * @param player the current player
-   * @param scanner scanner
-   * @param element the TimeBoardElement to process
+   * Constructor for TerminalAlgorithm
+   * @param scanner scanner used to read the inputs of the users
    */
-  private static void processTimeBoardElement(Player player, Scanner scanner, TimeBoardElement element) {
-    if (element == TimeBoardElement.button) {
-      var added = player.quiltboard().buttons();
-      System.out.println("You have crossed a button and have been awarded " + added + " buttons");
-      player.updateButton(player.button() + added);
-    }
-    if (element == TimeBoardElement.specialPatch) {
-      System.out.println("You have picked up a special patch!");
-      placeSpecialPatches(player, scanner);
-    }
+  public TerminalAlgorithm(Scanner scanner) {
+    this.scanner = Objects.requireNonNull(scanner);
+    anchors = new long[16];
   }
-  
-  /**
-   * Makes the player place a special patch
-   * @param player current player
-   * @param scanner scanner
-   */
-  private static void placeSpecialPatches(Player player, Scanner scanner) {
-    System.out.println("Please place your special patch");
-    patchPlacementProcedure(player, Patch.specialPatch(), scanner, 0);
 
-  }
-  
   /**
-   * From the distance of the move, processes actions when the player crosses TimeBoardElements
-   * @param player current player
-   * @param timeboard The TimeBoard of the current game
-   * @param distance The distance of the move of the player
-   * @param scanner scanner
+   * Shows the state of the quiltboard of a given player
+   * @param player the current player
    */
-  private static void timeboardCrossingProcedure(Player player, TimeBoard timeboard, int distance, Scanner scanner) {
-    if (distance <= 0)
-      throw new IllegalArgumentException("distance <= 0");
-    
-    var finishIndex = player.location() + distance;
-    if (player.location() + distance > TimeBoard.getSIZE() - 1)
-      finishIndex = TimeBoard.getSIZE() - 1;
-    var crossedElements = timeboard.elementCrossed(player.location(), finishIndex);
-    
-    crossedElements.stream().forEach(element -> processTimeBoardElement(player, scanner, element));
+  private static void showStateQuiltboard(Player player) {
+    System.out.println("# State of your quiltboard:");
+    System.out.println(Displays.displayQuiltBoard(player.quiltboard()));
   }
-  
 
-  
-  
-  /**
-   * Processes the appropriate action when the players skips the selection procedure.
-   * If the player / user wished to skip and refrain from choosing a patch, this method will process the movement of the player on the timeboard accordingly.
-   * The Player's position will be set in front of the opponent if the opponent hasn't finished (and the field `finished` will be set to true if arrived at the finish line).
-   * @param player current player
-   * @param opponent the current opponent
-   * @param timeboard the timeboard
-   * @param scanner scanner
-   */
-  private static void skipSelectionProcedure(Player player, Player opponent, TimeBoard timeboard, Scanner scanner) {
-    System.out.println("## Moving your time token...");
-    timeboardCrossingProcedure(player, timeboard, opponent.location() - player.location() + 1, scanner);
-    var tilesCrossed = player.getTileCrossedSelectionSkip(opponent);
-    player.skipSelectionUpdateLocation(opponent);
-    System.out.println("You have crossed " + tilesCrossed + " tiles and have been awarded the same amount of buttons");
-    player.updateButton(player.button() + tilesCrossed);
-    if (player.location() == TimeBoard.getSIZE() - 1)
-      player.finishPlayer();
-  }
-  
-  
   /**
    * Shows the player the state of the patch he's trying to flip
    * @param patch
@@ -106,18 +48,15 @@ public class TerminalAlgorithm {
     System.out.println("Input 'V' to mirror vertically, 'H' to mirror horizontally");
     System.out.println("Input 'Y' to stop");
   }
-  
+
   /**
    * Let's the user flip the given Patch until he is satisfied
-   * @param scanner scanner
+   * @param player the current player
    * @param patch the given patch
-   * @param type type of the game
    * @return the "flipped" patch
    */
-  private static Patch flipProcedure(Player player, Scanner scanner, Patch patch, int type) {
+  private Patch flipProcedure(Player player, Patch patch) {
     showStateQuiltboard(player);
-    if (type == 0)
-      return patch;
     while(true) {
       showPatchFlipState(patch);
       var key = scanner.next().charAt(0);
@@ -135,7 +74,7 @@ public class TerminalAlgorithm {
       }
     }
   }
-  
+
   /**
    * Asks the player to input valid coordinates
    */
@@ -143,78 +82,85 @@ public class TerminalAlgorithm {
     System.out.println("# Please input valid coordinates to place your patch");
     System.out.println("# For x y, example for (x = 2 and y = 4) : 2 4\n");
   }
-  
+
   /**
-   * Asks the player to place the given patch and places it if the choice is valid.
-   * Otherwise it will loop until a satisfactory placement position is given.
-   * @param player the current player
-   * @param patch the given patch
-   * @param scanner scanner
-   * @param type represents the game mode the player is in (1 == full, 0 == simplified)
+   * Reads the coordinates of a square on the quilt board
+   * @return the index y * 9 + x of the square, or -1 if the input is not a square of the quilt board
    */
-  private static void placementSelection(Player player, Patch patch, Scanner scanner, int type) {
+  private int readSquare() {
     int anchorX, anchorY;
-    Point anchor;
+    try {
+      anchorX = scanner.nextInt(); anchorY = scanner.nextInt();
+    } catch(InputMismatchException e) {
+      scanner.nextLine(); /* Skip the values read and make sure to restart the loop */
+      System.out.println("# Input invalid, please retry\n");
+      Tools.sleep(700);
+      return -1;
+    }
+    if (anchorX < 0 || anchorX >= BitBoard.WIDTH || anchorY < 0 || anchorY >= BitBoard.WIDTH)
+      return -1;
+    return BitBoard.index(anchorX, anchorY);
+  }
+
+  /**
+   * Asks the player where to place the chosen patch (and how to flip it in the full mode)
+   * until a valid placement is given.
+   * @param game the game
+   * @param patchIndex index of the chosen patch in front of the neutral token
+   * @return the encoded BUY move
+   */
+  private int placementSelection(Game game, int patchIndex) {
+    var player = game.currentPlayer();
+    var patch = game.patchcircle().get(patchIndex);
+    int move;
     do {
       showStateQuiltboard(player);
-      if (type == 1) { /* if full version played then we can use the flip procedure */
-        patch = flipProcedure(player, scanner, patch, type);
-        showStateQuiltboard(player); /* show the state again after flipping for the player to not scroll up again */
+      if (game.type() == 1) { /* if full version played then we can use the flip procedure */
+        patch = flipProcedure(player, patch);
       }
       askValidCoordinates();
-      try {
-        anchorX = scanner.nextInt(); anchorY = scanner.nextInt();
-      } catch(InputMismatchException e) {
-          anchorX = -1; anchorY = -1; scanner.nextLine(); /* Skip the values read and make sure to restart the loop */
-          System.out.println("# Input invalid, please retry\n");
-          Tools.sleep(700);
-      }
-      anchor = new Point(anchorX, anchorY); /* Creating the point to test the condition */
-    } while (!player.quiltboard().canPlacePatch(patch, anchor));
-    
-    player.quiltboard().placePatch(patch, anchor);
-}
-  
+      var anchor = readSquare();
+      move = anchor < 0 ? -1 : Move.encode(Move.BUY, patchIndex, patch.orientation(), anchor);
+    } while (move < 0 || !game.isLegal(move));
+    return move;
+  }
+
   /**
-   * Asks the player to place the given patch and places it if the choice is valid.
-   * Otherwise it will loop until a satisfactory placement position is given.
-   * @param player the current player
-   * @param patch the given patch
-   * @param scanner scanner
-   * @param type represents the game mode the player is in (1 == full, 0 == simplified)
+   * Asks the player where to place his special patch until a valid square is given.
+   * @param game the game
+   * @return the encoded SPECIAL move
    */
-  private static void patchPlacementProcedure(Player player, Patch patch,Scanner scanner, int type) {
-    placementSelection(player, patch, scanner, type);
-    System.out.println("# State of your quiltboard after placing your patch:");
-    System.out.println(Displays.displayQuiltBoard(player.quiltboard()));
+  private int specialPatchSelection(Game game) {
+    System.out.println("Please place your special patch");
+    int move;
+    do {
+      showStateQuiltboard(game.currentPlayer());
+      askValidCoordinates();
+      var anchor = readSquare();
+      move = anchor < 0 ? -1 : Move.encode(Move.SPECIAL, 0, 0, anchor);
+    } while (move < 0 || !game.isLegal(move));
+    return move;
   }
-  
+
   /**
-   * Procedure for placing a chosen patch from the patch circle on the player's quiltboard
-   * Updates the player's information according to the procedure
-   * @param player current player
-   * @param scanner scanner to get input of the users
-   * @param chosenPatchIndex the index of the patch chosen by the player
-   * @param patchcircle the PatchCircle used during the game
-   * @param timeboard the TimeBoard used during the game
-   * @param type type of the game (basic = 0 or full = 1)
+   * Checks if the current player can buy the patch at the given index and place it somewhere
+   * @param game the game
+   * @param patchIndex index of the patch in front of the neutral token
+   * @return true if the choice is valid, otherwise false
    */
-  private static void chosenPatchPlacementProcedure(Player player, Scanner scanner, int chosenPatchIndex, PatchCircle patchcircle, TimeBoard timeboard, int type) {
-    // Fetching the patch from the PatchCircle
-    var chosenPatch = patchcircle.choosePatch(chosenPatchIndex);
-    System.out.println("## Select the coordinates to place your patch!");
-    // keep asking for coordinates until they are good to place the patch
-    patchPlacementProcedure(player, chosenPatch, scanner, type);
-    
-    // Updating the button count after purchase
-    player.updateButton(player.button() - chosenPatch.price());
-    
-    // Updating the button count if the player will cross one or multiple buttons on the timeboard
-    // Place special patches if the players picks some up
-    timeboardCrossingProcedure(player, timeboard, chosenPatch.time(), scanner);
-    
-    // Updating the player's location
-    player.movePlayer(chosenPatch);
+  private boolean choiceIsValid(Game game, int patchIndex) {
+    var patchcircle = game.patchcircle();
+    var player = game.currentPlayer();
+    if (patchIndex < 0 || patchIndex > 2 || patchIndex >= patchcircle.size())
+      return false;
+    var patch = patchcircle.get(patchIndex);
+    if (patch.price() > player.button())
+      return false;
+    if (player.quiltboard().legalPlacements(patch, anchors) == 0) {
+      System.out.println("# This patch cannot be placed on your quiltboard");
+      return false;
+    }
+    return true;
   }
 
   /**
@@ -222,53 +168,75 @@ public class TerminalAlgorithm {
    * That int will be the choice / selection of the user regarding the selection of patches on the patch circle.
    * The user can only chose the first 3 patches in front of the neutral token, ie : input `0` to `2`.
    * If the user chooses to skip the selection, he will need to input `3`.
-   * @param player current player
-   * @param scanner Scanner
-   * @param patchcircle PatchCircle, used to fetch information about the available patches to choose
+   * @param game the game
    * @return an int between 0 and 2 if the user chooses a patch, or 3 if he wishes to skip
    */
-  private static int patchSelectionProcedure(Player player, Scanner scanner, PatchCircle patchcircle) {
+  private int patchSelectionProcedure(Game game) {
     var chosenPatchIndex = -1;
     System.out.println("## Select your patch with his id !");
     System.out.println("## Or skip it (enter '3')");
     do {
       chosenPatchIndex = Tools.scannerGetInt(scanner, -1);
-    } while(!patchcircle.choiceIsValid(chosenPatchIndex, player.button())); // 0 or 1 or 2 or 3
+    } while(chosenPatchIndex != 3 && !choiceIsValid(game, chosenPatchIndex)); // 0 or 1 or 2 or 3
     return chosenPatchIndex;
   }
-  
-  /**
-   * Function processes all the actions of a given player
-   * @param player current player
-   * @param opponent current opponent
-   * @param scanner scanner
-   * @param patchcircle patchcircle
-   * @param timeboard timeboard
-   * @param type type of the game (basic = 0 or full = 1)
-   * @return boolean that describes if player one's token is on the player two's token after the turn
-   */
-  public static boolean action(Player player, Player opponent, Scanner scanner, PatchCircle patchcircle, TimeBoard timeboard, int type) {
-    Objects.requireNonNull(player);
-    Objects.requireNonNull(opponent);
-    Objects.requireNonNull(scanner);
-    Objects.requireNonNull(patchcircle);
-    Objects.requireNonNull(timeboard);
-    
-    if (type > 1 || type < 0)
-      throw new IllegalArgumentException("game type invalid");
-    
-    var chosenPatchIndex = patchSelectionProcedure(player, scanner, patchcircle);
+
+  @Override
+  public int decide(Game game) {
+    Objects.requireNonNull(game);
+    if (game.pendingSpecialPatches() > 0)
+      return specialPatchSelection(game);
+    var chosenPatchIndex = patchSelectionProcedure(game);
     if (chosenPatchIndex == 3) {
       System.out.println("## You chose not to choose a patch\n");
-      skipSelectionProcedure(player, opponent, timeboard, scanner);
-      // a player is in front of the other, then player one is not on player two
-      return false;
+      return Move.encode(Move.SKIP, 0, 0, 0);
     }
-    if (chosenPatchIndex != 3) {
-      chosenPatchPlacementProcedure(player, scanner, chosenPatchIndex, patchcircle, timeboard, type);
-      if (player.id() == 1 && opponent.location() == player.location())
-        return true;
+    System.out.println("## Select the coordinates to place your patch!");
+    return placementSelection(game, chosenPatchIndex);
+  }
+
+  @Override
+  public void turnStarted(Game game, Player player) {
+    System.out.println("### IT IS PLAYER " + player.id() + "'s TURN! ###\n");
+    System.out.println(Displays.displayStartOfTurn(game.timeboard(), game.patchcircle(), player,
+                                                   game.player1(), game.player2(), game.tokenOneOnTwo()));
+  }
+
+  @Override
+  public void moveApplied(Game game, Player player, int move, int distance) {
+    if (Move.kind(move) == Move.SKIP) {
+      System.out.println("## Moving the time token of player " + player.id() + "...");
+      System.out.println("Player " + player.id() + " has crossed " + distance + " tiles and has been awarded the same amount of buttons");
+      return;
     }
-    return false;
+    System.out.println("# State of the quiltboard of player " + player.id() + " after placing the patch:");
+    System.out.println(Displays.displayQuiltBoard(player.quiltboard()));
+  }
+
+  @Override
+  public void buttonsEarned(Game game, Player player, int buttons) {
+    System.out.println("Player " + player.id() + " has crossed a button and has been awarded " + buttons + " buttons");
+  }
+
+  @Override
+  public void specialPatchesPicked(Game game, Player player, int count) {
+    System.out.println("Player " + player.id() + " has picked up " + (count == 1 ? "a special patch!" : count + " special patches!"));
+  }
+
+  @Override
+  public void specialTileTaken(Game game, Player player) {
+    System.out.println(Displays.displaySpecialTileMessage(player));
+  }
+
+  @Override
+  public void turnEnded(Game game, Player player) {
+    Tools.sleep(300); // delay to not see the program flash through instantly after a turn
+    System.out.println("\n\n\n\n\n");
+  }
+
+  @Override
+  public void gameEnded(Game game) {
+    System.out.println(Displays.displayScore(game.player1(), game.player2()));
+    System.out.println(Displays.displayResult(game.player1(), game.player2()));
   }
 }
@@ -3,9 +3,9 @@
  */
 package fr.uge.patchwork2;
 
-import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a time board
@@ -16,7 +16,7 @@ public class TimeBoard {
   /**
    * Size of the time board
    */
-  private static int SIZE = 54;
+  private static final int SIZE = 54;
   /**
    * Array containing the specific element at each index like buttons or special tiles
    */
@@ -24,11 +24,43 @@ public class TimeBoard {
   /**
    * Number of special patch to be placed on the timeboard
    */
-  private static int speciaPatchNb = 5;
+  private static final int SPECIAL_PATCH_NB = 5;
   /**
    * Number of buttons to be placed on the timeboard
    */
-  private static int buttonNb = 9;
+  private static final int BUTTON_NB = 9;
+  /**
+   * Number of buttons on the squares 1 to i of the time board, for each index i (the buttons never move)
+   */
+  private static final int[] BUTTONS_BEFORE = new int[SIZE];
+  /**
+   * Coordinates of each square on the 9x6 drawing of the time board (see pathX)
+   */
+  private static final int[] PATH_X = new int[SIZE];
+  private static final int[] PATH_Y = new int[SIZE];
+
+  static {
+    for (var i = 1; i < SIZE; i++)
+      BUTTONS_BEFORE[i] = BUTTONS_BEFORE[i - 1] + (i % 6 == 5 && i < 6 * BUTTON_NB ? 1 : 0);
+    int x = 0, y = 0;
+    for (var i = 0; i < SIZE - 1; i++) {
+      if ((0 <= i && i < 8) || (25 <= i && i < 32) || (43 <= i && i < 48)) x++;
+      else if ((8 <= i && i < 13) || (32 <= i && i < 35) || (48 <= i && i < 49)) y++;
+      else if ((13 <= i && i < 21) || (35 <= i && i < 41) || (49 <= i && i < 53)) x--;
+      else if ((21 <= i && i < 25) || (41 <= i && i < 43)) y--;
+      PATH_X[i + 1] = x;
+      PATH_Y[i + 1] = y;
+    }
+  }
+
+  /**
+   * Zobrist hash of the special patches still on the time board (see Zobrist)
+   */
+  private long hash;
+  /**
+   * Indexes of the special patches still on the time board (bit i set if there is a special patch at index i)
+   */
+  private long specialPatches;
   
   /**
    * Initializes the time board
@@ -38,7 +70,7 @@ public class TimeBoard {
     for (var i = 0; i < SIZE; i++) {
       path[i] = TimeBoardElement.empty;
     }
-    for (var i = 0; i < buttonNb; i++) {
+    for (var i = 0; i < BUTTON_NB; i++) {
       path[5 + 6 * i] = TimeBoardElement.button;
     }
   }
@@ -58,9 +90,8 @@ public class TimeBoard {
    */
   public static TimeBoard newFullTimeBoard() {
     var newTimeBoard = new TimeBoard();
-    var path = newTimeBoard.path();
-    for (var i = 0; i < speciaPatchNb; i++) {
-      path[26 + 6 * i] = TimeBoardElement.specialPatch;
+    for (var i = 0; i < SPECIAL_PATCH_NB; i++) {
+      newTimeBoard.setElement(26 + 6 * i, TimeBoardElement.specialPatch);
     }
     return newTimeBoard;
   }
@@ -74,40 +105,44 @@ public class TimeBoard {
   }
   
   /**
-   * Getter for field path
-   * @return Field path, array that contains the corresponding element of the time board at each index
+   * Returns the element of the time board at the given index, the path itself is not exposed
+   * so that the bitmask of the special patches and the buttons table stay in sync with it
+   * @param index index on the time board
+   * @return the element at this index
    */
-  public TimeBoardElement[] path() {
-    return path;
+  public TimeBoardElement element(int index) {
+    Objects.checkIndex(index, SIZE);
+    return path[index];
   }
   
 
   /**
-   * Get the index in form of a point of integer for the 2D path from the index of a 1D path.
+   * Returns the x coordinate of a square on the 2D drawing of the time board.
    * The 2D timeboard is a 9x6 rectangle.
    * This only works for a 9x6 path, going from north west then moving clockwise until it reaches the "center" at index 53.
-   * The coordinates movement in the loop represents the path a time token will take.
-   * @param index 1D index to convert into 2D index for the timeboard
-   * @return the corresponding point
+   * The coordinates of every index are computed once, following the path a time token will take.
+   * @param index 1D index of the square
+   * @return the x coordinate
    */
-  public static Point path2DIndex(int index) {
-    if (index < 0 || SIZE <= index)
-      throw new IllegalArgumentException("index out of bound");
-    int x = 0, y = 0;
-    for(var i = 0; i < index; i++) {
-      if (i == index) break;
-      if ((0 <= i && i < 8) || (25 <= i && i < 32) || (43 <= i && i < 48)) x++;
-      else if ((8 <= i && i < 13) || (32 <= i && i < 35) || (48 <= i && i < 49)) y++;
-      else if ((13 <= i && i < 21) || (35 <= i && i < 41) || (49 <= i && i < 53)) x--;
-      else if ((21 <= i && i < 25) || (41 <= i && i < 43) || (49 <= i && i < 53)) y--;
-    }
-    return new Point(x, y);
+  public static int pathX(int index) {
+    Objects.checkIndex(index, SIZE);
+    return PATH_X[index];
   }
 
+  /**
+   * Returns the y coordinate of a square on the 2D drawing of the time board (see pathX)
+   * @param index 1D index of the square
+   * @return the y coordinate
+   */
+  public static int pathY(int index) {
+    Objects.checkIndex(index, SIZE);
+    return PATH_Y[index];
+  }
 
-
-/**
+  /**
    * Returns an array of TimeBoardElement that represents the elements found between startIndex+1 and finishIndex
+   * (the buttons, then the special patches, which are removed from the time board).
+   * The game uses buttonsCrossed and takeSpecialPatches instead, which allocate nothing.
    * @param startIndex index of the position of the time token of the player
    * @param finishIndex index of the final position of the time token after moving it
    * @return the list of crossed TimeBoardElements
@@ -121,22 +156,124 @@ public class TimeBoard {
       throw new IllegalArgumentException("finishIndex is lower or equal to startIndex");
     
     var crossed = new ArrayList<TimeBoardElement>();
-    for (int i = startIndex + 1; i <= finishIndex; i++) {
-      if (path[i] != TimeBoardElement.empty) {
-        if (path[i] == TimeBoardElement.button) {
-          crossed.add(TimeBoardElement.button);
-        }
-        if (path[i] == TimeBoardElement.specialPatch) {
-          path[i] = TimeBoardElement.empty;
-          crossed.add(TimeBoardElement.specialPatch);
-        }
-      }
-    }
+    for (var i = buttonsCrossed(startIndex, finishIndex); i > 0; i--)
+      crossed.add(TimeBoardElement.button);
+    for (var i = takeSpecialPatches(startIndex, finishIndex); i > 0; i--)
+      crossed.add(TimeBoardElement.specialPatch);
     return crossed;
   }
   
+  /**
+   * Counts the buttons found between startIndex+1 and finishIndex
+   * @param startIndex index of the position of the time token of the player
+   * @param finishIndex index of the final position of the time token after moving it
+   * @return the number of crossed buttons
+   */
+  public int buttonsCrossed(int startIndex, int finishIndex) {
+    checkMove(startIndex, finishIndex);
+    return BUTTONS_BEFORE[finishIndex] - BUTTONS_BEFORE[startIndex];
+  }
+
+  /**
+   * Counts the special patches found between startIndex+1 and finishIndex, without removing them
+   * @param startIndex index of the position of the time token of the player
+   * @param finishIndex index of the final position of the time token after moving it
+   * @return the number of special patches
+   */
+  public int specialPatchesCrossed(int startIndex, int finishIndex) {
+    checkMove(startIndex, finishIndex);
+    return Long.bitCount(specialPatches & crossed(startIndex, finishIndex));
+  }
+  
+  /**
+   * Counts the special patches found between startIndex+1 and finishIndex and removes them from the time board
+   * @param startIndex index of the position of the time token of the player
+   * @param finishIndex index of the final position of the time token after moving it
+   * @return the number of special patches picked up
+   */
+  public int takeSpecialPatches(int startIndex, int finishIndex) {
+    checkMove(startIndex, finishIndex);
+    var taken = specialPatches & crossed(startIndex, finishIndex);
+    for (var bits = taken; bits != 0; bits &= bits - 1)
+      setElement(Long.numberOfTrailingZeros(bits), TimeBoardElement.empty);
+    return Long.bitCount(taken);
+  }
+  
+  /**
+   * Returns the indexes of the special patches still on the time board as a bitmask
+   * @return the bitmask (bit i is set if there is a special patch at index i)
+   */
+  public long specialPatches() {
+    return specialPatches;
+  }
+  
+  /**
+   * Restores the special patches of the time board, used to undo a move
+   * @param mask bitmask of the special patches, previously obtained with specialPatches()
+   */
+  public void restoreSpecialPatches(long mask) {
+    if ((mask >>> SIZE) != 0)
+      throw new IllegalArgumentException("mask out of bound");
+    /* only the squares whose special patch changes are set, usually a single one */
+    for (var changed = specialPatches ^ mask; changed != 0; changed &= changed - 1) {
+      var index = Long.numberOfTrailingZeros(changed);
+      setElement(index, (mask & (1L << index)) != 0 ? TimeBoardElement.specialPatch : TimeBoardElement.empty);
+    }
+  }
+  
+  /**
+   * Returns the Zobrist hash of the special patches still on the time board,
+   * kept up to date by every method modifying the time board
+   * @return the hash
+   */
+  public long hash() {
+    return hash;
+  }
+  
+  /**
+   * Sets the element of path at the given index and updates the hash of the time board
+   * @param index index of the element
+   * @param element the new element
+   */
+  private void setElement(int index, TimeBoardElement element) {
+    if (path[index] == TimeBoardElement.specialPatch) {
+      hash ^= Zobrist.specialPatch(index);
+      specialPatches &= ~(1L << index);
+    }
+    if (element == TimeBoardElement.specialPatch) {
+      hash ^= Zobrist.specialPatch(index);
+      specialPatches |= 1L << index;
+    }
+    path[index] = element;
+  }
+
+  /**
+   * Returns the squares crossed by a move as a bitmask
+   * @param startIndex index of the position of the time token of the player
+   * @param finishIndex index of the final position of the time token after moving it
+   * @return the bitmask of the indexes startIndex+1 to finishIndex
+   */
+  private static long crossed(int startIndex, int finishIndex) {
+    return (-1L << (startIndex + 1)) & (-1L >>> (Long.SIZE - 1 - finishIndex));
+  }
+  
+  /**
+   * Checks that a move from startIndex to finishIndex is possible on the time board
+   * @param startIndex index of the position of the time token of the player
+   * @param finishIndex index of the final position of the time token after moving it
+   */
+  private static void checkMove(int startIndex, int finishIndex) {
+    if (startIndex < 0 || startIndex >= SIZE)
+      throw new IllegalArgumentException("startIndex out of bound");
+    if (finishIndex < 0 || finishIndex >= SIZE)
+      throw new IllegalArgumentException("finishIndex out of bound");
+    if (finishIndex <= startIndex)
+      throw new IllegalArgumentException("finishIndex is lower or equal to startIndex");
+  }
+  
   /**
    * Sets empty the element of path at the given index.
+   * The buttons never leave the time board (buttonsCrossed relies on it).
    * @param index Index of the element to set empty.
    */
   public void setEmpty(int index) {
@@ -144,6 +281,8 @@ public class TimeBoard {
       throw new IllegalArgumentException("index < 0");
     if (index >= SIZE)
       throw new IllegalArgumentException("index > SIZE (53)");
-    path[index] = TimeBoardElement.empty;
+    if (path[index] == TimeBoardElement.button)
+      throw new IllegalArgumentException("a button cannot be removed");
+    setElement(index, TimeBoardElement.empty);
   }
 }
@@ -0,0 +1,123 @@
+package fr.uge.patchwork2;
+
+/**
+ * Fixed-size table of the results of searched positions, indexed by the Zobrist hash of the position (see Game.hash).
+ *
+ * The data of an entry (depth, value, bound and best move) is packed into a long, 0 meaning no entry :
+ * - bits 0-1 : the bound (EXACT, LOWER or UPPER, never 0)
+ * - bits 2-9 : the remaining depth of the search that stored the entry
+ * - bits 10-25 : the best move (encoded as in Move)
+ * - bits 32-63 : the value, for the player to move in the position
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public interface TranspositionTable {
+  /**
+   * The value is the exact value of the position
+   */
+  int EXACT = 1;
+  /**
+   * The value is a lower bound of the value of the position (the search was cut off by beta)
+   */
+  int LOWER = 2;
+  /**
+   * The value is an upper bound of the value of the position (no move reached alpha)
+   */
+  int UPPER = 3;
+  /**
+   * Greatest depth that can be stored in an entry
+   */
+  int MAX_DEPTH = 0xFF;
+
+  /**
+   * Returns the entry of a position
+   * @param hash hash of the position
+   * @return the packed data of the entry, 0 if the position is not in the table
+   */
+  long probe(long hash);
+
+  /**
+   * Stores the result of the search of a position, the table decides whether it replaces the current entry
+   * @param hash hash of the position
+   * @param depth remaining depth of the search (between 0 and MAX_DEPTH)
+   * @param value value of the position for the player to move
+   * @param bound kind of the value (EXACT, LOWER or UPPER)
+   * @param move best move found (encoded as in Move)
+   */
+  void store(long hash, int depth, int value, int bound, int move);
+
+  /**
+   * Removes every entry
+   */
+  void clear();
+
+  /**
+   * Returns the number of entries of the table
+   * @return the capacity
+   */
+  long capacity();
+
+  /**
+   * Packs the data of an entry
+   * @param depth remaining depth of the search (between 0 and MAX_DEPTH)
+   * @param value value of the position
+   * @param bound kind of the value (EXACT, LOWER or UPPER)
+   * @param move best move
+   * @return the packed data, never 0
+   */
+  static long pack(int depth, int value, int bound, int move) {
+    if (depth < 0 || depth > MAX_DEPTH)
+      throw new IllegalArgumentException("depth out of range");
+    if (bound < EXACT || bound > UPPER)
+      throw new IllegalArgumentException("Unknown bound");
+    return (long) value << 32 | (long) (move & 0xFFFF) << 10 | depth << 2 | bound;
+  }
+
+  /**
+   * Extracts the depth of packed data
+   * @param entry the packed data
+   * @return the depth
+   */
+  static int depth(long entry) {
+    return (int) (entry >>> 2) & MAX_DEPTH;
+  }
+
+  /**
+   * Extracts the value of packed data
+   * @param entry the packed data
+   * @return the value
+   */
+  static int value(long entry) {
+    return (int) (entry >> 32);
+  }
+
+  /**
+   * Extracts the bound of packed data
+   * @param entry the packed data
+   * @return the bound
+   */
+  static int bound(long entry) {
+    return (int) entry & 0b11;
+  }
+
+  /**
+   * Extracts the best move of packed data
+   * @param entry the packed data
+   * @return the encoded move
+   */
+  static int move(long entry) {
+    return (int) (entry >>> 10) & 0xFFFF;
+  }
+
+  /**
+   * Returns the number of entries of a table of a given size, a power of two
+   * @param megabytes size of the table in megabytes
+   * @param entryBytes size of an entry in bytes
+   * @return the number of entries
+   */
+  static long entries(int megabytes, int entryBytes) {
+    if (megabytes <= 0)
+      throw new IllegalArgumentException("the size of a table must be positive");
+    return Long.highestOneBit(((long) megabytes << 20) / entryBytes);
+  }
+}
@@ -0,0 +1,194 @@
+package fr.uge.patchwork2;
+
+import java.util.Objects;
+
+/**
+ * Random keys used to compute the 64-bit hash of a position (Zobrist hashing).
+ *
+ * The hash of an element is the xor of the keys of its features (occupied squares, buttons, location...) :
+ * when a feature changes, the key of the old value is xored out and the key of the new value is xored in,
+ * so QuiltBoard, Player, PatchCircle and TimeBoard keep their hash up to date in constant time.
+ * Game.hash combines them into the hash of the whole position.
+ *
+ * The keys are the same for every run, a hash can therefore be stored and compared later.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class Zobrist {
+  private static final long SEED = 0x5EED_1A7C_4B0B_2022L;
+  /**
+   * Keys of the occupied squares of a quilt board
+   */
+  private static final long[] SQUARES = table(BitBoard.SQUARES, 1);
+  /**
+   * Keys of the special patches still on the time board
+   */
+  private static final long[] SPECIAL_PATCHES = table(Long.SIZE, 2);
+  /**
+   * Keys of the patches still in the patch circle, for each index in the original order of the circle
+   */
+  private static final long[] SLOTS = table(PatchCircle.MAX_SIZE, 3);
+  /**
+   * Keys of the position of the neutral token
+   */
+  private static final long[] CURSORS = table(PatchCircle.MAX_SIZE, 4);
+
+  private static final int BUTTON = 5;
+  private static final int LOCATION = 6;
+  private static final int INCOME = 7;
+  private static final int PICKED_PATCHES = 8;
+  private static final int FLAG = 9;
+
+  /**
+   * Key of a finished player
+   */
+  public static final long FINISHED = key(FLAG, 0);
+  /**
+   * Key of the player who has the special tile
+   */
+  public static final long SPECIAL_TILE = key(FLAG, 1);
+  /**
+   * Key of the time token of player 1 being on the time token of player 2
+   */
+  public static final long TOKEN_ONE_ON_TWO = key(FLAG, 2);
+  /**
+   * Multiplier applied to the hash of player 2 so that swapping the players changes the hash (odd, so no information is lost)
+   */
+  public static final long PLAYER_TWO = 0x9E37_79B9_7F4A_7C15L;
+
+  /**
+   * Mixes the bits of a long (finalizer of SplitMix64)
+   * @param z the long
+   * @return the mixed long
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns the key of a value of a feature
+   * @param feature the feature
+   * @param value the value
+   * @return the key
+   */
+  private static long key(int feature, int value) {
+    return mix(SEED + ((long) feature << 32 | (value & 0xFFFFFFFFL)) * PLAYER_TWO);
+  }
+
+  /**
+   * Creates the table of keys of a feature
+   * @param length number of values of the feature
+   * @param feature the feature
+   * @return the table
+   */
+  private static long[] table(int length, int feature) {
+    var table = new long[length];
+    for (var i = 0; i < length; i++) {
+      table[i] = key(feature, i);
+    }
+    return table;
+  }
+
+  /**
+   * Returns the key of an occupied square of a quilt board
+   * @param index index y * 9 + x of the square
+   * @return the key
+   */
+  public static long square(int index) {
+    return SQUARES[index];
+  }
+
+  /**
+   * Returns the xor of the keys of the given squares
+   * @param low squares 0 to 63
+   * @param high squares 64 to 80
+   * @return the xor of the keys
+   */
+  public static long squares(long low, long high) {
+    var hash = 0L;
+    for (; low != 0; low &= low - 1)
+      hash ^= SQUARES[Long.numberOfTrailingZeros(low)];
+    for (; high != 0; high &= high - 1)
+      hash ^= SQUARES[Long.SIZE + Long.numberOfTrailingZeros(high)];
+    return hash;
+  }
+
+  /**
+   * Returns the key of the buttons held by a player
+   * @param button the number of buttons
+   * @return the key
+   */
+  public static long button(int button) {
+    return key(BUTTON, button);
+  }
+
+  /**
+   * Returns the key of the location of a player on the time board
+   * @param location the location
+   * @return the key
+   */
+  public static long location(int location) {
+    return key(LOCATION, location);
+  }
+
+  /**
+   * Returns the key of the buttons located on the patches of a quilt board
+   * @param buttons the number of buttons
+   * @return the key
+   */
+  public static long income(int buttons) {
+    return key(INCOME, buttons);
+  }
+
+  /**
+   * Returns the key of the number of special patches picked up by a player
+   * @param specialPatches the number of special patches
+   * @return the key
+   */
+  public static long specialPatches(int specialPatches) {
+    return key(PICKED_PATCHES, specialPatches);
+  }
+
+  /**
+   * Returns the key of a special patch still on the time board
+   * @param index index of the special patch on the time board
+   * @return the key
+   */
+  public static long specialPatch(int index) {
+    return SPECIAL_PATCHES[index];
+  }
+
+  /**
+   * Returns the key of a patch still in the patch circle, it depends on the patch and on its place in the circle
+   * @param slot index of the patch in the original order of the circle
+   * @param patch the patch
+   * @return the key
+   */
+  public static long patch(int slot, Patch patch) {
+    Objects.requireNonNull(patch);
+    var content = patch.shape().id();
+    content = content * 31 + (patch.buttons() << 16 | patch.price() << 8 | patch.time());
+    return mix(SLOTS[slot] ^ content);
+  }
+
+  /**
+   * Returns the key of the position of the neutral token
+   * @param cursor index (in the original order of the circle) of the first patch in front of the neutral token
+   * @return the key
+   */
+  public static long cursor(int cursor) {
+    return CURSORS[cursor];
+  }
+
+  /**
+   * Returns the key of the number of special patches the current player still has to place
+   * @param pending the number of special patches
+   * @param player id of the player who has to place them
+   * @return the key (0 if there is no special patch to place)
+   */
+  public static long pending(int pending, int player) {
+    return pending == 0 ? 0L : key(FLAG, 2 + pending * 2 + player);
+  }
+}
@@ -0,0 +1,109 @@
+package fr.uge.patchwork2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the exactness of EndgameSolver : with every legal move, its margin must be the one of a plain minimax
+ * over legalMoves, without pruning nor transposition table, on the endings of seeded random games.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class EndgameSolverTest {
+  /**
+   * Number of endings solved for each mode
+   */
+  private static final int ENDINGS = 100;
+  /**
+   * Remaining time of the two players at the start of the endings
+   */
+  private static final int SQUARES = 11;
+
+  /**
+   * Plays a seeded random game until the remaining time of the two players is at most SQUARES
+   * @param type type of the game (basic = 0 or full = 1)
+   * @param seed seed of the game
+   * @return the game, not over
+   */
+  private static Game ending(int type, long seed) {
+    for (;; seed += 1_000_000) { /* a few games end with a single move from a larger remaining time */
+      var random = new Random(seed);
+      var game = new Game(type, random);
+      var bot = new RandomBot(random);
+      while (!game.isOver() && EndgameSolver.remainingTime(game) > SQUARES)
+        game.apply(bot.decide(game));
+      if (!game.isOver())
+        return game;
+    }
+  }
+
+  /**
+   * Computes the value of a position by a complete minimax over every legal move
+   * @param game the game, left in the same position
+   * @param player id of the player to move (of the last player who moved if the game is over)
+   * @return the final score of the player minus the one of his opponent, with perfect play
+   */
+  private static int minimax(Game game, int player) {
+    if (game.isOver()) {
+      var self = player == 1 ? game.player1() : game.player2();
+      var opponent = player == 1 ? game.player2() : game.player1();
+      return self.score() - opponent.score();
+    }
+    var moves = new int[Game.MAX_MOVES];
+    var count = game.legalMoves(moves);
+    var best = Integer.MIN_VALUE;
+    for (var i = 0; i < count; i++) {
+      game.apply(moves[i]);
+      var next = game.isOver() ? player : game.currentPlayer().id();
+      var value = next == player ? minimax(game, player) : -minimax(game, next);
+      game.undo();
+      best = Math.max(best, value);
+    }
+    return best;
+  }
+
+  /**
+   * Checks the solver against the minimax on the endings of one mode
+   * @param type type of the games (basic = 0 or full = 1)
+   */
+  private static void agreesWithMinimax(int type) {
+    var table = new HeapTranspositionTable(16);
+    try (var solver = new EndgameSolver(table, SQUARES, true, new RandomBot(new Random(0)))) {
+      for (var seed = 0; seed < ENDINGS; seed++) {
+        var game = ending(type, seed);
+        var state = GameState.of(game);
+        var expected = minimax(game, game.currentPlayer().id());
+        table.clear();
+        assertTrue(solver.takesOver(game));
+        assertEquals(expected, solver.solve(game), "seed " + seed);
+        assertEquals(state, GameState.of(game));
+        assertTrue(game.isLegal(solver.lastMove()));
+
+        /* the best move keeps the margin */
+        var player = game.currentPlayer().id();
+        game.apply(solver.lastMove());
+        var next = game.isOver() ? player : game.currentPlayer().id();
+        assertEquals(expected, next == player ? minimax(game, player) : -minimax(game, next), "seed " + seed);
+        game.undo();
+
+        /* solved again from the table */
+        assertEquals(expected, solver.solve(game), "seed " + seed);
+        assertEquals(0, solver.lastNodes());
+      }
+    }
+  }
+
+  @Test
+  public void basicEndingsAgreeWithMinimax() {
+    agreesWithMinimax(0);
+  }
+
+  @Test
+  public void fullEndingsAgreeWithMinimax() {
+    agreesWithMinimax(1);
+  }
+}
@@ -0,0 +1,237 @@
+package fr.uge.patchwork2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the rules of Game (apply, undo and legalMoves) and of the snapshots and hashes of a position.
+ *
+ * The round trips are checked on every legal move of every position of seeded random games,
+ * the rules on small positions built by hand.
+ * @author Gabriel Radoniaina / Hervé Nguyen
+ *
+ */
+public class GameTest {
+  /**
+   * Number of random games of the round trip tests
+   */
+  private static final int GAMES = 300;
+
+  /**
+   * Creates a game of the full mode on the given players and patches
+   * @param timeboard the time board
+   * @param player1 the player 1
+   * @param player2 the player 2
+   * @param patches patches of the circle, the first one is in front of the neutral token
+   * @return the game
+   */
+  private static Game game(TimeBoard timeboard, Player player1, Player player2, Patch... patches) {
+    return new Game(new PatchCircle(List.of(patches)), timeboard, player1, player2, 1);
+  }
+
+  /**
+   * Creates a rectangle patch
+   * @param buttons buttons on the patch
+   * @param price price of the patch
+   * @param time time value of the patch
+   * @param sizeX horizontal size
+   * @param sizeY vertical size
+   * @return the patch
+   */
+  private static Patch patch(int buttons, int price, int time, int sizeX, int sizeY) {
+    return new Patch(buttons, price, time, Shape.rectangle(sizeX, sizeY), 0x808080);
+  }
+
+  @Test
+  public void everyLegalMoveIsUndoneExactly() {
+    var moves = new int[Game.MAX_MOVES];
+    for (var seed = 0; seed < GAMES; seed++) {
+      var random = new Random(seed);
+      var game = new Game(seed % 2, random);
+      var bot = new RandomBot(random);
+      while (!game.isOver()) {
+        var state = GameState.of(game);
+        var hash = game.hash();
+        var count = game.legalMoves(moves);
+        assertTrue(count > 0);
+        for (var i = 0; i < count; i++) {
+          assertTrue(game.isLegal(moves[i]));
+          game.apply(moves[i]);
+          game.undo();
+          assertEquals(state, GameState.of(game));
+          assertEquals(hash, game.hash());
+        }
+        game.apply(bot.decide(game));
+      }
+      assertEquals(0, game.legalMoves(moves));
+    }
+  }
+
+  @Test
+  public void incrementalHashMatchesACopy() {
+    for (var seed = 0; seed < GAMES; seed++) {
+      var random = new Random(seed);
+      var game = new Game(seed % 2, random);
+      var bot = new RandomBot(random);
+      while (!game.isOver()) {
+        /* the copy computes its hash from the snapshot, the game has updated its own move after move */
+        var copy = game.copy();
+        assertEquals(GameState.of(game), GameState.of(copy));
+        assertEquals(game.hash(), copy.hash());
+        game.apply(bot.decide(game));
+      }
+    }
+  }
+
+  @Test
+  public void restoreGoesBackToTheSnapshot() {
+    for (var seed = 0; seed < GAMES; seed++) {
+      var random = new Random(seed);
+      var game = new Game(seed % 2, random);
+      var bot = new RandomBot(random);
+      var start = GameState.of(game);
+      var hash = game.hash();
+      var played = 0;
+      while (!game.isOver()) {
+        game.apply(bot.decide(game));
+        played++;
+      }
+      assertEquals(played, game.movesPlayed());
+      game.restore(start);
+      assertEquals(start, GameState.of(game));
+      assertEquals(hash, game.hash());
+      assertEquals(0, game.movesPlayed());
+    }
+  }
+
+  @Test
+  public void skipCrossesAButtonAndASpecialPatch() {
+    var quiltboard = new QuiltBoard();
+    quiltboard.placePatch(patch(2, 0, 0, 2, 2), 0, 0);
+    var player1 = new Player(10, 24, quiltboard, false, 1);
+    var player2 = new Player(5, 30, new QuiltBoard(), false, 2);
+    var game = game(TimeBoard.newFullTimeBoard(), player1, player2, patch(0, 1, 1, 1, 1));
+    var start = GameState.of(game);
+    var hash = game.hash();
+
+    game.apply(Move.encode(Move.SKIP, 0, 0, 0));
+    /* 7 tiles from 24 to 31 : the button at 29 earns the 2 buttons of the quilt board, the special patch at 26 is picked up */
+    assertEquals(31, player1.location());
+    assertEquals(10 + 7 + 2, player1.button());
+    assertEquals(1, game.pendingSpecialPatches());
+    assertEquals(TimeBoardElement.empty, game.timeboard().element(26));
+    assertSame(player1, game.currentPlayer());
+    var moves = new int[Game.MAX_MOVES];
+    assertEquals(BitBoard.SQUARES - 4, game.legalMoves(moves));
+    assertFalse(game.isLegal(Move.encode(Move.SKIP, 0, 0, 0)));
+
+    game.apply(Move.encode(Move.SPECIAL, 0, 0, BitBoard.index(8, 8)));
+    assertEquals(0, game.pendingSpecialPatches());
+    assertTrue(player1.quiltboard().isOccupied(8, 8));
+    assertSame(player2, game.currentPlayer());
+
+    game.undo();
+    game.undo();
+    assertEquals(start, GameState.of(game));
+    assertEquals(hash, game.hash());
+    assertEquals(TimeBoardElement.specialPatch, game.timeboard().element(26));
+  }
+
+  @Test
+  public void skipCrossingTwoSpecialPatches() {
+    var player1 = new Player(5, 20, new QuiltBoard(), false, 1);
+    var player2 = new Player(5, 33, new QuiltBoard(), false, 2);
+    var game = game(TimeBoard.newFullTimeBoard(), player1, player2, patch(0, 1, 1, 1, 1));
+
+    game.apply(Move.encode(Move.SKIP, 0, 0, 0));
+    /* 14 tiles from 20 to 34 : the special patches at 26 and 32, the buttons earn nothing on an empty quilt board */
+    assertEquals(34, player1.location());
+    assertEquals(5 + 14, player1.button());
+    assertEquals(2, game.pendingSpecialPatches());
+    game.apply(Move.encode(Move.SPECIAL, 0, 0, 0));
+    assertSame(player1, game.currentPlayer());
+    assertEquals(1, game.pendingSpecialPatches());
+    game.apply(Move.encode(Move.SPECIAL, 0, 0, 1));
+    assertEquals(0, game.pendingSpecialPatches());
+    assertEquals(2, player1.specialPatches());
+    assertSame(player2, game.currentPlayer());
+  }
+
+  @Test
+  public void skipToTheLastSquareEarnsNoExtraTile() {
+    var player1 = new Player(5, 50, new QuiltBoard(), false, 1);
+    var player2 = new Player(5, 53, new QuiltBoard(), true, 2);
+    var game = game(TimeBoard.newBasicTimeBoard(), player1, player2, patch(0, 1, 1, 1, 1));
+
+    game.apply(Move.encode(Move.SKIP, 0, 0, 0));
+    assertEquals(53, player1.location());
+    assertEquals(5 + 3, player1.button());
+    assertTrue(player1.finished());
+    assertTrue(game.isOver());
+  }
+
+  @Test
+  public void patchWithoutTimeKeepsTheTurn() {
+    var player1 = new Player(5, 3, new QuiltBoard(), false, 1);
+    var player2 = new Player(5, 10, new QuiltBoard(), false, 2);
+    var free = patch(0, 1, 0, 1, 2);
+    var expensive = patch(0, 9, 9, 3, 3);
+    var game = game(TimeBoard.newFullTimeBoard(), player1, player2, free, expensive, patch(1, 2, 3, 2, 2));
+
+    assertFalse(game.isLegal(Move.encode(Move.BUY, 1, 0, 0))); /* too expensive */
+    game.apply(Move.encode(Move.BUY, 0, 0, 0));
+    assertEquals(3, player1.location());
+    assertEquals(4, player1.button());
+    assertSame(player1, game.currentPlayer());
+    assertEquals(2, game.patchcircle().size());
+    assertSame(expensive, game.patchcircle().get(0)); /* the neutral token moves to the bought patch */
+    assertTrue(player1.quiltboard().isOccupied(0, 1));
+  }
+
+  @Test
+  public void firstSevenBySevenSquareEarnsTheSpecialTile() {
+    var low = 0L;
+    var high = 0L;
+    for (var y = 0; y < 7; y++) {
+      for (var x = 0; x < 7; x++) {
+        var index = BitBoard.index(x, y);
+        if (x == 6 && y == 6)
+          continue;
+        if (index < Long.SIZE)
+          low |= 1L << index;
+        else
+          high |= 1L << (index - Long.SIZE);
+      }
+    }
+    var quiltboard = new QuiltBoard();
+    quiltboard.restore(low, high, 0);
+    var player1 = new Player(5, 0, quiltboard, false, 1);
+    var player2 = new Player(5, 10, new QuiltBoard(), false, 2);
+    var game = game(TimeBoard.newBasicTimeBoard(), player1, player2, patch(0, 1, 1, 1, 1), patch(0, 1, 1, 1, 1));
+    var start = GameState.of(game);
+    var hash = game.hash();
+
+    game.apply(Move.encode(Move.BUY, 0, 0, BitBoard.index(6, 6)));
+    assertTrue(player1.specialTile());
+    assertTrue(game.specialTileTaken());
+    assertEquals(5 - 1 + 7, player1.button());
+
+    /* the special tile is only given once */
+    game.apply(Move.encode(Move.BUY, 0, 0, BitBoard.index(8, 8)));
+    assertEquals(5 - 2 + 7, player1.button());
+
+    game.undo();
+    game.undo();
+    assertFalse(player1.specialTile());
+    assertFalse(game.specialTileTaken());
+    assertEquals(start, GameState.of(game));
+    assertEquals(hash, game.hash());
+  }
+}